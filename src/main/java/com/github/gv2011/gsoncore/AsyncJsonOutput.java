@@ -0,0 +1,402 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.wrap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Non-blocking output for {@link GsonWriter}. The writer encodes into pooled
+ * byte buffers, and each filled buffer is handed to an {@link
+ * AsynchronousByteChannel} or to a callback, one at a time and in order. The
+ * writing thread never waits for I/O. Instead, producers are expected to
+ * observe {@link #writable()}:
+ * <pre>   {@code
+ *   AsyncJsonOutput output = new AsyncJsonOutput(channel);
+ *   GsonWriter writer = output.newWriter("");
+ *   writer.beginArray();
+ *   for (Row row : rows) {
+ *     writeRow(writer, row);
+ *     if (!output.isWritable()) {
+ *       writer.flush();
+ *       output.writable().join(); // or compose, to continue asynchronously
+ *     }
+ *   }
+ *   writer.endArray();
+ *   writer.close();
+ *   output.completion().thenRun(...);
+ * }</pre>
+ *
+ * <p>Back-pressure is advisory: the output never blocks and never rejects
+ * output. {@code maxInFlight} only determines when {@link #isWritable()} and
+ * {@link #writable()} signal that the producer should pause. A producer that
+ * ignores them makes buffers queue up without bound. A failed transfer is reported by {@link #completion()} and
+ * by the next call of {@link GsonWriter#flush()} or {@link GsonWriter#close()}.
+ * Unpaired surrogates are encoded as {@code '?'}, like {@link
+ * java.io.OutputStreamWriter} does.
+ *
+ * <p>The output may be written by one thread at a time. {@link #writable()},
+ * {@link #isWritable()} and {@link #completion()} may be called from any
+ * thread.
+ */
+public final class AsyncJsonOutput {
+
+  static final int BUFFER_SIZE = 8192;
+  private static final int POOL_SIZE = 64;
+  private static final ArrayBlockingQueue<ByteBuffer> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+  public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+  private final Function<ByteBuffer, ? extends CompletionStage<?>> transfer;
+  private final AsynchronousByteChannel channel;
+  private final int maxInFlight;
+
+  private final Object lock = new Object();
+  /** Buffers handed over but not written yet, including the current transfer. Guarded by lock. */
+  private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+  /** Guarded by lock. */
+  private boolean transferring = false;
+  /** Guarded by lock. */
+  private boolean closed = false;
+  /** Guarded by lock. */
+  private boolean finished = false;
+  /** Guarded by lock. */
+  private Throwable failure;
+  /** Guarded by lock. */
+  private CompletableFuture<Void> writable = CompletableFuture.completedFuture(null);
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+  /** Requests to {@link #drain()}; non-zero while a thread is draining. */
+  private final AtomicInteger drainRequests = new AtomicInteger();
+
+  /** Only used by the writing thread. */
+  private final Sink sink = new Sink();
+
+  public AsyncJsonOutput(final AsynchronousByteChannel channel) {
+    this(channel, DEFAULT_MAX_IN_FLIGHT);
+  }
+
+  /**
+   * Writes to {@code channel}, which is closed after the last buffer has been
+   * written.
+   */
+  public AsyncJsonOutput(final AsynchronousByteChannel channel, final int maxInFlight) {
+    this(channel, null, maxInFlight);
+  }
+
+  /**
+   * Hands each filled buffer to {@code transfer}. The buffer must not be used
+   * anymore after the returned stage has completed, it is then reused. The
+   * next buffer is handed over after the previous stage has completed.
+   */
+  public AsyncJsonOutput(
+    final Function<ByteBuffer, ? extends CompletionStage<?>> transfer, final int maxInFlight
+  ) {
+    this(null, transfer, maxInFlight);
+  }
+
+  private AsyncJsonOutput(
+    final AsynchronousByteChannel channel,
+    final Function<ByteBuffer, ? extends CompletionStage<?>> transfer,
+    final int maxInFlight
+  ) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive.");
+    }
+    assert channel != null || transfer != null;
+    this.channel = channel;
+    this.transfer = transfer;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Returns the writer for this output. Only one writer may be used per
+   * output.
+   */
+  public GsonWriter newWriter(final String indent) {
+    return new GsonWriter(sink, indent, false, false, false);
+  }
+
+  /**
+   * Returns true if fewer than {@code maxInFlight} buffers are waiting to be
+   * written.
+   */
+  public boolean isWritable() {
+    synchronized (lock) {
+      return queue.size() < maxInFlight;
+    }
+  }
+
+  /**
+   * Returns a future that completes when fewer than {@code maxInFlight} buffers
+   * are waiting to be written. It is already completed if that is the case
+   * now. It also completes if the output has failed.
+   */
+  public CompletableFuture<Void> writable() {
+    synchronized (lock) {
+      return writable;
+    }
+  }
+
+  /**
+   * Returns a future that completes after the writer has been closed and all
+   * output has been transferred, or exceptionally when a transfer has failed.
+   */
+  public CompletableFuture<Void> completion() {
+    return completion;
+  }
+
+  private void submit(final ByteBuffer buffer) {
+    synchronized (lock) {
+      checkFailure();
+      queue.add(buffer);
+      if (queue.size() >= maxInFlight && writable.isDone()) {
+        writable = new CompletableFuture<>();
+      }
+    }
+    drain();
+  }
+
+  /**
+   * Starts the transfer of the head of the queue unless one is running, or
+   * finishes the output when nothing is left. Only one thread drains at a
+   * time. A transfer that completes synchronously calls this method again,
+   * which then only makes the draining thread loop, so the stack does not grow
+   * with the number of buffers.
+   */
+  private void drain() {
+    if (drainRequests.getAndIncrement() != 0) {
+      return;
+    }
+    int requests = 1;
+    do {
+      ByteBuffer next = null;
+      boolean done = false;
+      synchronized (lock) {
+        if (!transferring) {
+          next = failure == null ? queue.peek() : null;
+          if (next != null) {
+            transferring = true;
+          } else if ((closed || failure != null) && !finished) {
+            finished = true;
+            done = true;
+          }
+        }
+      }
+      if (next != null) {
+        transfer(next);
+      } else if (done) {
+        finish();
+      }
+      requests = drainRequests.addAndGet(-requests);
+    } while (requests != 0);
+  }
+
+  private void transfer(final ByteBuffer buffer) {
+    if (channel != null) {
+      try {
+        channel.write(buffer, buffer, new CompletionHandler<Integer, ByteBuffer>() {
+          @Override
+          public void completed(final Integer result, final ByteBuffer buffer) {
+            // A partial write leaves the buffer at the head of the queue, to be continued.
+            transferred(!buffer.hasRemaining(), null);
+          }
+          @Override
+          public void failed(final Throwable e, final ByteBuffer buffer) {
+            transferred(true, e);
+          }
+        });
+      } catch (final RuntimeException e) {
+        transferred(true, e);
+      }
+    } else {
+      final CompletionStage<?> stage;
+      try {
+        stage = transfer.apply(buffer);
+      } catch (final RuntimeException e) {
+        transferred(true, e);
+        return;
+      }
+      stage.whenComplete((r, e) -> transferred(true, e));
+    }
+  }
+
+  /**
+   * Called when a transfer of the head of the queue has ended.
+   *
+   * @param complete false if the head has only been written partially
+   */
+  private void transferred(final boolean complete, final Throwable e) {
+    CompletableFuture<Void> nowWritable = null;
+    synchronized (lock) {
+      transferring = false;
+      if (e != null) {
+        if (failure == null) {
+          failure = e;
+        }
+        queue.clear();
+      } else if (complete) {
+        release(queue.poll());
+      }
+      if (queue.size() < maxInFlight && !writable.isDone()) {
+        nowWritable = writable;
+      }
+    }
+    if (nowWritable != null) {
+      nowWritable.complete(null);
+    }
+    drain();
+  }
+
+  /**
+   * Completes {@link #completion()}, after closing the channel.
+   */
+  private void finish() {
+    Throwable e;
+    synchronized (lock) {
+      e = failure;
+    }
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (final IOException ce) {
+        if (e == null) {
+          e = ce;
+        }
+      }
+    }
+    if (e == null) {
+      completion.complete(null);
+    } else {
+      completion.completeExceptionally(e);
+    }
+  }
+
+  private void close() {
+    synchronized (lock) {
+      closed = true;
+    }
+    drain();
+  }
+
+  private void checkFailure() {
+    if (failure != null) {
+      throw wrap(failure);
+    }
+  }
+
+  private static ByteBuffer acquire() {
+    final ByteBuffer buffer = POOL.poll();
+    return buffer != null ? buffer : ByteBuffer.allocate(BUFFER_SIZE);
+  }
+
+  private static void release(final ByteBuffer buffer) {
+    buffer.clear();
+    POOL.offer(buffer);
+  }
+
+  /**
+   * Encodes to UTF-8 into the current buffer and submits it when full.
+   */
+  private final class Sink extends JsonSink {
+    private ByteBuffer buffer;
+    /** A high surrogate whose low surrogate has not been written yet, or 0. */
+    private char pendingHighSurrogate = 0;
+    private boolean sinkClosed = false;
+
+    @Override
+    void write(final char[] chars, final int off, final int len) {
+      if (sinkClosed) {
+        throw new IllegalStateException("Closed.");
+      }
+      ByteBuffer buffer = this.buffer;
+      if (buffer == null) {
+        buffer = this.buffer = acquire();
+      }
+      byte[] bytes = buffer.array();
+      int pos = buffer.position();
+      for (int i = off, end = off + len; i < end; i++) {
+        if (pos > bytes.length - 4) {
+          buffer.position(pos);
+          submitBuffer();
+          buffer = this.buffer = acquire();
+          bytes = buffer.array();
+          pos = 0;
+        }
+        final char c = chars[i];
+        if (pendingHighSurrogate != 0) {
+          final char high = pendingHighSurrogate;
+          pendingHighSurrogate = 0;
+          if (Character.isLowSurrogate(c)) {
+            final int codePoint = Character.toCodePoint(high, c);
+            bytes[pos++] = (byte) (0xf0 | (codePoint >> 18));
+            bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            bytes[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            continue;
+          }
+          bytes[pos++] = '?';
+        }
+        if (c < 0x80) {
+          bytes[pos++] = (byte) c;
+        } else if (c < 0x800) {
+          bytes[pos++] = (byte) (0xc0 | (c >> 6));
+          bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+          pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+          bytes[pos++] = '?';
+        } else {
+          bytes[pos++] = (byte) (0xe0 | (c >> 12));
+          bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+          bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+        }
+      }
+      buffer.position(pos);
+    }
+
+    /**
+     * Submits the current buffer, without waiting for it to be written.
+     */
+    @Override
+    void flush() {
+      synchronized (lock) {
+        checkFailure();
+      }
+      if (buffer != null && buffer.position() > 0) {
+        submitBuffer();
+      }
+    }
+
+    @Override
+    void close() {
+      if (!sinkClosed) {
+        if (pendingHighSurrogate != 0) {
+          pendingHighSurrogate = 0;
+          write(new char[]{'?'}, 0, 1);
+        }
+        flush();
+        sinkClosed = true;
+        if (buffer != null) {
+          release(buffer);
+          buffer = null;
+        }
+        AsyncJsonOutput.this.close();
+      }
+    }
+
+    private void submitBuffer() {
+      final ByteBuffer buffer = this.buffer;
+      this.buffer = null;
+      buffer.flip();
+      submit(buffer);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.staticClass;
+
+/**
+ * The tags of the binary encoding written by {@link BinaryJsonWriter} and read
+ * by {@link BinaryJsonReader}. Every token starts with a one byte tag:
+ * <pre>
+ *   NULL, FALSE, TRUE
+ *   INT         zigzag varint
+ *   DECIMAL     zigzag varint scale, varint length, big endian two's complement unscaled value
+ *   STRING      varint length, UTF-8 bytes
+ *   BEGIN_ARRAY ... END_ARRAY
+ *   BEGIN_OBJECT (name value)* END_OBJECT
+ *   NAME        varint length, UTF-8 bytes; the name gets the next index of the name table
+ *   NAME_REF    varint index into the name table
+ * </pre>
+ * Varints are unsigned LEB128. The name table is empty at the start of every
+ * top-level value and holds at most {@link #MAX_NAMES} names; a name
+ * encountered when the table is full is written with a {@code NAME} tag every
+ * time.
+ *
+ * <p>A stream that starts with the {@code SHARED_NAMES} tag keeps the name
+ * table across top-level values, so that messages on a long-lived stream refer
+ * to the names of earlier messages. The table is only cleared after a
+ * top-level value that left it full, which bounds its size while letting both
+ * sides agree on the indices without further coordination.
+ */
+final class BinaryFormat {
+
+  private BinaryFormat(){staticClass();}
+
+  static final int NULL = 0x00;
+  static final int FALSE = 0x01;
+  static final int TRUE = 0x02;
+  static final int INT = 0x03;
+  static final int DECIMAL = 0x04;
+  static final int STRING = 0x05;
+  static final int BEGIN_ARRAY = 0x06;
+  static final int END_ARRAY = 0x07;
+  static final int BEGIN_OBJECT = 0x08;
+  static final int END_OBJECT = 0x09;
+  static final int NAME = 0x0a;
+  static final int NAME_REF = 0x0b;
+  static final int SHARED_NAMES = 0x0c;
+
+  /** Returned by the reader at the end of the input. */
+  static final int EOF = -1;
+
+  static final int MAX_NAMES = 4096;
+
+  static String tagName(final int tag) {
+    switch (tag) {
+    case NULL: return "NULL";
+    case FALSE:
+    case TRUE: return "BOOLEAN";
+    case INT:
+    case DECIMAL: return "NUMBER";
+    case STRING: return "STRING";
+    case BEGIN_ARRAY: return "BEGIN_ARRAY";
+    case END_ARRAY: return "END_ARRAY";
+    case BEGIN_OBJECT: return "BEGIN_OBJECT";
+    case END_OBJECT: return "END_OBJECT";
+    case NAME:
+    case NAME_REF: return "NAME";
+    case EOF: return "END_DOCUMENT";
+    default: return "tag 0x" + Integer.toHexString(tag);
+    }
+  }
+}
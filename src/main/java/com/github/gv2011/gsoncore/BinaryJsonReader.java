@@ -0,0 +1,536 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.gsoncore.JsonScope.DANGLING_NAME;
+import static com.github.gv2011.gsoncore.JsonScope.EMPTY_ARRAY;
+import static com.github.gv2011.gsoncore.JsonScope.EMPTY_DOCUMENT;
+import static com.github.gv2011.gsoncore.JsonScope.EMPTY_OBJECT;
+import static com.github.gv2011.gsoncore.JsonScope.NONEMPTY_DOCUMENT;
+import static com.github.gv2011.util.CollectionUtils.pair;
+import static com.github.gv2011.util.ex.Exceptions.call;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.github.gv2011.util.Pair;
+import com.github.gv2011.util.XStream;
+import com.github.gv2011.util.icol.Opt;
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonList;
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.json.JsonNodeType;
+import com.github.gv2011.util.json.JsonObject;
+import com.github.gv2011.util.json.JsonPrimitive;
+import com.github.gv2011.util.json.JsonReader;
+import com.github.gv2011.util.num.Decimal;
+import com.github.gv2011.util.num.NumUtils;
+
+/**
+ * Reads the binary encoding written by {@link BinaryJsonWriter}, see {@link
+ * BinaryFormat}. Lengths are known in advance and numbers need no text
+ * conversion, so reading is considerably faster than parsing text.
+ *
+ * <p>Like {@link GsonReader}, it is a {@link JsonReader}, so callers can switch
+ * between text and binary by configuration, see {@link JsonFormat}. Instances
+ * of this class are not thread safe.
+ */
+public final class BinaryJsonReader implements JsonReader {
+
+  private static final int NONE = -2;
+
+  private final JsonFactory jf;
+  private final InputStream in;
+
+  private final byte[] buffer = new byte[8192];
+  private int pos = 0;
+  private int limit = 0;
+  /** The number of bytes that have been discarded from the start of the buffer. */
+  private long bufferOffset = 0;
+
+  /** The next tag if it has been read already, otherwise NONE. */
+  private int peeked = NONE;
+
+  /**
+   * The nesting stack. EMPTY_ARRAY stands for any array, EMPTY_OBJECT for an
+   * object that expects a name or its end.
+   */
+  private int[] stack = new int[32];
+  private int stackSize = 0;
+  {
+    stack[stackSize++] = EMPTY_DOCUMENT;
+  }
+
+  /** The name table of the current top-level value, or of the stream if names are shared. */
+  private final List<String> names = new ArrayList<>();
+
+  /** Set by a SHARED_NAMES tag at the start of the stream. */
+  private boolean sharedNames = false;
+  private boolean started = false;
+
+  public BinaryJsonReader(final JsonFactory jf, final InputStream in) {
+    assert in != null;
+    this.jf = jf;
+    this.in = in;
+  }
+
+  @Override
+  public void readArrayStart() {
+    expectValue(BinaryFormat.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  @Override
+  public void readArrayEnd() {
+    if (stack[stackSize - 1] != EMPTY_ARRAY || peekTag() != BinaryFormat.END_ARRAY) {
+      throw unexpected("END_ARRAY");
+    }
+    peeked = NONE;
+    stackSize--;
+    afterValue();
+  }
+
+  @Override
+  public void readObjectStart() {
+    expectValue(BinaryFormat.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  @Override
+  public void readObjectEnd() {
+    if (stack[stackSize - 1] != EMPTY_OBJECT || peekTag() != BinaryFormat.END_OBJECT) {
+      throw unexpected("END_OBJECT");
+    }
+    peeked = NONE;
+    stackSize--;
+    afterValue();
+  }
+
+  @Override
+  public boolean hasNext() {
+    final int tag = peekTag();
+    return tag != BinaryFormat.END_ARRAY && tag != BinaryFormat.END_OBJECT && tag != BinaryFormat.EOF;
+  }
+
+  @Override
+  public Opt<JsonNodeType> nextType() {
+    switch (peekTag()) {
+    case BinaryFormat.NULL:
+      return Opt.of(JsonNodeType.NULL);
+    case BinaryFormat.FALSE:
+    case BinaryFormat.TRUE:
+      return Opt.of(JsonNodeType.BOOLEAN);
+    case BinaryFormat.INT:
+    case BinaryFormat.DECIMAL:
+      return Opt.of(JsonNodeType.NUMBER);
+    case BinaryFormat.STRING:
+      return Opt.of(JsonNodeType.STRING);
+    case BinaryFormat.BEGIN_ARRAY:
+      return Opt.of(JsonNodeType.LIST);
+    case BinaryFormat.BEGIN_OBJECT:
+      return Opt.of(JsonNodeType.OBJECT);
+    default:
+      return Opt.empty();
+    }
+  }
+
+  @Override
+  public String readName() {
+    if (stack[stackSize - 1] != EMPTY_OBJECT) {
+      throw unexpected("NAME");
+    }
+    final int tag = peekTag();
+    final String name;
+    if (tag == BinaryFormat.NAME_REF) {
+      peeked = NONE;
+      final long index = readVarint();
+      if (index >= names.size()) {
+        throw malformed("Invalid name reference " + index);
+      }
+      name = names.get((int) index);
+    } else if (tag == BinaryFormat.NAME) {
+      peeked = NONE;
+      name = readUtf8();
+      if (names.size() < BinaryFormat.MAX_NAMES) {
+        names.add(name);
+      }
+    } else {
+      throw unexpected("NAME");
+    }
+    stack[stackSize - 1] = DANGLING_NAME;
+    return name;
+  }
+
+  @Override
+  public JsonNode readNode() {
+    switch (peekTag()) {
+    case BinaryFormat.BEGIN_ARRAY:
+      return readList();
+    case BinaryFormat.BEGIN_OBJECT:
+      return readObject();
+    default:
+      return readPrimitive();
+    }
+  }
+
+  @Override
+  public JsonList readList() {
+    readArrayStart();
+    final JsonList list = XStream.fromIterator(new It()).collect(jf.toJsonList());
+    readArrayEnd();
+    return list;
+  }
+
+  @Override
+  public JsonObject readObject() {
+    readObjectStart();
+    final JsonObject obj = XStream.fromIterator(new Itm()).collect(jf.toJsonObject());
+    readObjectEnd();
+    return obj;
+  }
+
+  @Override
+  public JsonPrimitive<?> readPrimitive() {
+    switch (peekTag()) {
+    case BinaryFormat.STRING:
+      return jf.primitive(readStringRaw());
+    case BinaryFormat.INT:
+      return jf.primitive(nextLong());
+    case BinaryFormat.DECIMAL:
+      return jf.primitive(readNumberRaw());
+    case BinaryFormat.FALSE:
+    case BinaryFormat.TRUE:
+      return jf.primitive(readBooleanRaw());
+    case BinaryFormat.NULL:
+      readNullRaw();
+      return jf.jsonNull();
+    default:
+      throw unexpected("a primitive");
+    }
+  }
+
+  @Override
+  public <P> JsonPrimitive<P> readPrimitive(final Class<P> clazz) {
+    final JsonPrimitive<?> primitive = readPrimitive();
+    if (!clazz.isInstance(primitive.value())) {
+      throw new IllegalStateException("Expected " + clazz.getSimpleName() + " but was " + primitive + location());
+    }
+    @SuppressWarnings("unchecked")
+    final JsonPrimitive<P> result = (JsonPrimitive<P>) primitive;
+    return result;
+  }
+
+  String readStringRaw() {
+    expectValue(BinaryFormat.STRING);
+    final String result = readUtf8();
+    afterValue();
+    return result;
+  }
+
+  long nextLong() {
+    final int tag = peekTag();
+    if (tag == BinaryFormat.DECIMAL) {
+      final Decimal value = readNumberRaw();
+      if (!value.isIntg() || !value.fitsLong()) {
+        throw new NumberFormatException("Expected a long but was " + value + location());
+      }
+      return value.longValue();
+    }
+    expectValue(BinaryFormat.INT);
+    final long zigzag = readVarint();
+    afterValue();
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+
+  Decimal readNumberRaw() {
+    if (peekTag() == BinaryFormat.INT) {
+      return NumUtils.num(nextLong());
+    }
+    expectValue(BinaryFormat.DECIMAL);
+    final long zigzag = readVarint();
+    final int scale = (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+    final byte[] unscaled = readBytes(readLength());
+    afterValue();
+    return NumUtils.num(new BigDecimal(new BigInteger(unscaled), scale));
+  }
+
+  boolean readBooleanRaw() {
+    final int tag = peekTag();
+    if (tag == BinaryFormat.TRUE || tag == BinaryFormat.FALSE) {
+      expectValue(tag);
+      afterValue();
+      return tag == BinaryFormat.TRUE;
+    }
+    throw unexpected("BOOLEAN");
+  }
+
+  void readNullRaw() {
+    expectValue(BinaryFormat.NULL);
+    afterValue();
+  }
+
+  /**
+   * Skips the next value, including all nested values of an array or object.
+   */
+  void skipValue() {
+    int depth = 0;
+    do {
+      final int tag = peekTag();
+      switch (tag) {
+      case BinaryFormat.BEGIN_ARRAY:
+        readArrayStart();
+        depth++;
+        break;
+      case BinaryFormat.BEGIN_OBJECT:
+        readObjectStart();
+        depth++;
+        break;
+      case BinaryFormat.END_ARRAY:
+        readArrayEnd();
+        depth--;
+        break;
+      case BinaryFormat.END_OBJECT:
+        readObjectEnd();
+        depth--;
+        break;
+      case BinaryFormat.NAME:
+      case BinaryFormat.NAME_REF:
+        readName();
+        break;
+      case BinaryFormat.STRING:
+        expectValue(tag);
+        skip(readLength());
+        afterValue();
+        break;
+      case BinaryFormat.DECIMAL:
+        expectValue(tag);
+        readVarint();
+        skip(readLength());
+        afterValue();
+        break;
+      case BinaryFormat.INT:
+        expectValue(tag);
+        readVarint();
+        afterValue();
+        break;
+      case BinaryFormat.NULL:
+      case BinaryFormat.FALSE:
+      case BinaryFormat.TRUE:
+        expectValue(tag);
+        afterValue();
+        break;
+      default:
+        throw unexpected("a value");
+      }
+    } while (depth > 0);
+  }
+
+  /**
+   * Closes this reader and the underlying {@link InputStream}.
+   */
+  @Override
+  public void close() {
+    peeked = NONE;
+    stack[0] = JsonScope.CLOSED;
+    stackSize = 1;
+    call(in::close);
+  }
+
+  private int peekTag() {
+    int tag = peeked;
+    if (tag == NONE) {
+      if (stack[stackSize - 1] == JsonScope.CLOSED) {
+        throw new IllegalStateException("JsonReader is closed");
+      }
+      tag = readTag();
+      if (!started) {
+        started = true;
+        if (tag == BinaryFormat.SHARED_NAMES) {
+          sharedNames = true;
+          tag = readTag();
+        }
+      }
+      peeked = tag;
+    }
+    return tag;
+  }
+
+  private int readTag() {
+    if (pos == limit && !fillBuffer(1)) {
+      return BinaryFormat.EOF;
+    } else {
+      return buffer[pos++] & 0xff;
+    }
+  }
+
+  /**
+   * Consumes the tag of a value after checking that a value is allowed here.
+   */
+  private void expectValue(final int expected) {
+    final int tag = peekTag();
+    final int context = stack[stackSize - 1];
+    if (tag != expected || context == EMPTY_OBJECT) {
+      throw unexpected(BinaryFormat.tagName(expected));
+    }
+    peeked = NONE;
+    if (context == DANGLING_NAME) {
+      stack[stackSize - 1] = EMPTY_OBJECT;
+    } else if (context == EMPTY_DOCUMENT) {
+      stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+    }
+  }
+
+  /**
+   * Starts a new name table after each top-level value, or, with shared names,
+   * after a top-level value that filled the table.
+   */
+  private void afterValue() {
+    if (stackSize == 1 && (!sharedNames || names.size() >= BinaryFormat.MAX_NAMES)) {
+      names.clear();
+    }
+  }
+
+  private void push(final int newTop) {
+    if (stackSize == stack.length) {
+      final int[] newStack = new int[stackSize * 2];
+      System.arraycopy(stack, 0, newStack, 0, stackSize);
+      stack = newStack;
+    }
+    stack[stackSize++] = newTop;
+  }
+
+  private long readVarint() {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (pos == limit && !fillBuffer(1)) {
+        throw malformed("Unterminated varint");
+      }
+      final int b = buffer[pos++];
+      result |= (long) (b & 0x7f) << shift;
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw malformed("Varint too long");
+  }
+
+  private int readLength() {
+    final long length = readVarint();
+    if (length < 0 || length > Integer.MAX_VALUE - 8) {
+      throw malformed("Invalid length " + length);
+    }
+    return (int) length;
+  }
+
+  private String readUtf8() {
+    final int length = readLength();
+    if (length <= buffer.length) {
+      if (limit - pos < length && !fillBuffer(length)) {
+        throw malformed("Unterminated string");
+      }
+      final String result = new String(buffer, pos, length, StandardCharsets.UTF_8);
+      pos += length;
+      return result;
+    } else {
+      return new String(readBytes(length), StandardCharsets.UTF_8);
+    }
+  }
+
+  private byte[] readBytes(final int length) {
+    final int buffered = Math.min(limit - pos, length);
+    final byte[] result;
+    if (buffered == length) {
+      result = new byte[length];
+      System.arraycopy(buffer, pos, result, 0, length);
+      pos += length;
+    } else {
+      // readNBytes allocates in steps, so a corrupt length does not allocate everything up front.
+      final byte[] rest = call(() -> in.readNBytes(length - buffered));
+      if (rest.length != length - buffered) {
+        throw malformed("Unexpected end of input");
+      }
+      result = new byte[length];
+      System.arraycopy(buffer, pos, result, 0, buffered);
+      System.arraycopy(rest, 0, result, buffered, rest.length);
+      bufferOffset += limit + rest.length;
+      pos = 0;
+      limit = 0;
+    }
+    return result;
+  }
+
+  private void skip(int length) {
+    while (length > 0) {
+      if (pos == limit && !fillBuffer(1)) {
+        throw malformed("Unexpected end of input");
+      }
+      final int n = Math.min(length, limit - pos);
+      pos += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Returns true once {@code limit - pos >= minimum}.
+   */
+  private boolean fillBuffer(final int minimum) {
+    final byte[] buffer = this.buffer;
+    bufferOffset += pos;
+    if (limit != pos) {
+      limit -= pos;
+      System.arraycopy(buffer, pos, buffer, 0, limit);
+    } else {
+      limit = 0;
+    }
+    pos = 0;
+    int total;
+    while ((total = call(() -> in.read(buffer, limit, buffer.length - limit))) != -1) {
+      limit += total;
+      if (limit >= minimum) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String location() {
+    return " at offset " + (bufferOffset + pos);
+  }
+
+  private IllegalStateException unexpected(final String expected) {
+    return new IllegalStateException(
+      "Expected " + expected + " but was " + BinaryFormat.tagName(peekTag()) + location()
+    );
+  }
+
+  private MalformedJsonException malformed(final String message) {
+    return new MalformedJsonException(message + location());
+  }
+
+  private final class It implements Iterator<JsonNode> {
+    @Override
+    public boolean hasNext() {
+      return BinaryJsonReader.this.hasNext();
+    }
+    @Override
+    public JsonNode next() {
+      return readNode();
+    }
+  }
+
+  private final class Itm implements Iterator<Pair<String,JsonNode>> {
+    @Override
+    public boolean hasNext() {
+      return BinaryJsonReader.this.hasNext();
+    }
+    @Override
+    public Pair<String,JsonNode> next() {
+      final String key = readName();
+      final JsonNode value = readNode();
+      return pair(key, value);
+    }
+  }
+}
@@ -0,0 +1,338 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.gsoncore.JsonScope.DANGLING_NAME;
+import static com.github.gv2011.gsoncore.JsonScope.EMPTY_ARRAY;
+import static com.github.gv2011.gsoncore.JsonScope.EMPTY_DOCUMENT;
+import static com.github.gv2011.gsoncore.JsonScope.EMPTY_OBJECT;
+import static com.github.gv2011.gsoncore.JsonScope.NONEMPTY_ARRAY;
+import static com.github.gv2011.gsoncore.JsonScope.NONEMPTY_DOCUMENT;
+import static com.github.gv2011.gsoncore.JsonScope.NONEMPTY_OBJECT;
+import static com.github.gv2011.util.ex.Exceptions.call;
+
+import java.io.Flushable;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.gv2011.util.AutoCloseableNt;
+import com.github.gv2011.util.json.JsonWriter;
+import com.github.gv2011.util.num.Decimal;
+
+/**
+ * Writes JSON in the compact binary encoding described in {@link
+ * BinaryFormat}. Integers are written as varints and repeated member names as
+ * references into a name table, which typically makes the output
+ * 30 to 50 percent smaller than compact text. It can be read with {@link
+ * BinaryJsonReader}. The name table normally lasts for one top-level value;
+ * with shared names, it is kept for the whole stream.
+ *
+ * <p>Unlike {@link GsonWriter}, members with a {@code null} value are always
+ * written. The stream may contain several top-level values. Instances of this
+ * class are not thread safe.
+ */
+public final class BinaryJsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
+
+  private final OutputStream out;
+
+  private final byte[] buffer = new byte[8192];
+  private int count = 0;
+
+  private int[] stack = new int[32];
+  private int stackSize = 0;
+  {
+    stack[stackSize++] = EMPTY_DOCUMENT;
+  }
+
+  /** The name table of the current top-level value, or of the stream if names are shared. */
+  private final Map<String, Integer> names = new HashMap<>();
+
+  private final boolean sharedNames;
+
+  public BinaryJsonWriter(final OutputStream out) {
+    this(out, false);
+  }
+
+  /**
+   * @param sharedNames true to keep the name table across top-level values,
+   *   for streams of many messages with the same member names
+   */
+  public BinaryJsonWriter(final OutputStream out, final boolean sharedNames) {
+    assert out != null;
+    this.out = out;
+    this.sharedNames = sharedNames;
+    if (sharedNames) {
+      writeByte(BinaryFormat.SHARED_NAMES);
+    }
+  }
+
+  @Override
+  public void beginArray() {
+    beforeValue();
+    writeByte(BinaryFormat.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  @Override
+  public void endArray() {
+    final int context = peek();
+    if (context != EMPTY_ARRAY && context != NONEMPTY_ARRAY) {
+      throw new IllegalStateException("Nesting problem.");
+    }
+    stackSize--;
+    writeByte(BinaryFormat.END_ARRAY);
+    afterValue();
+  }
+
+  @Override
+  public void beginObject() {
+    beforeValue();
+    writeByte(BinaryFormat.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  @Override
+  public void endObject() {
+    final int context = peek();
+    if (context == DANGLING_NAME) {
+      throw new IllegalStateException("Dangling name.");
+    }
+    if (context != EMPTY_OBJECT && context != NONEMPTY_OBJECT) {
+      throw new IllegalStateException("Nesting problem.");
+    }
+    stackSize--;
+    writeByte(BinaryFormat.END_OBJECT);
+    afterValue();
+  }
+
+  @Override
+  public void name(final String name) {
+    if (name == null) {
+      throw new NullPointerException("name == null");
+    }
+    final int context = peek();
+    if (context != EMPTY_OBJECT && context != NONEMPTY_OBJECT) {
+      throw new IllegalStateException("Nesting problem.");
+    }
+    stack[stackSize - 1] = DANGLING_NAME;
+    final Integer index = names.get(name);
+    if (index != null) {
+      writeByte(BinaryFormat.NAME_REF);
+      writeVarint(index);
+    } else {
+      if (names.size() < BinaryFormat.MAX_NAMES) {
+        names.put(name, names.size());
+      }
+      writeByte(BinaryFormat.NAME);
+      writeUtf8(name);
+    }
+  }
+
+  @Override
+  public void nullValue() {
+    beforeValue();
+    writeByte(BinaryFormat.NULL);
+    afterValue();
+  }
+
+  @Override
+  public void writeString(final String value) {
+    assert value != null;
+    beforeValue();
+    writeByte(BinaryFormat.STRING);
+    writeUtf8(value);
+    afterValue();
+  }
+
+  @Override
+  public void writeBoolean(final boolean value) {
+    beforeValue();
+    writeByte(value ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+    afterValue();
+  }
+
+  @Override
+  public void writeInt(final int value) {
+    writeLong(value);
+  }
+
+  @Override
+  public void writeLong(final long value) {
+    beforeValue();
+    writeByte(BinaryFormat.INT);
+    writeVarint((value << 1) ^ (value >> 63));
+    afterValue();
+  }
+
+  @Override
+  public void writeDecimal(final Decimal value) {
+    assert value != null;
+    if (value.isIntg() && value.fitsLong()) {
+      writeLong(value.longValue());
+    } else {
+      beforeValue();
+      final BigDecimal decimal = value.toBigDecimal();
+      final int scale = decimal.scale();
+      final byte[] unscaled = decimal.unscaledValue().toByteArray();
+      writeByte(BinaryFormat.DECIMAL);
+      writeVarint((scale << 1) ^ (scale >> 31));
+      writeVarint(unscaled.length);
+      writeBytes(unscaled);
+      afterValue();
+    }
+  }
+
+  @Override
+  public void flush() {
+    if (stackSize == 0) {
+      throw new IllegalStateException("Closed.");
+    }
+    flushBuffer();
+    call(out::flush);
+  }
+
+  @Override
+  public void close() {
+    if (stackSize != 0) {
+      flushBuffer();
+    }
+    call(out::close);
+    final int size = stackSize;
+    if (size > 1 || size == 1 && stack[0] != NONEMPTY_DOCUMENT) {
+      throw new RuntimeException("Incomplete document");
+    }
+    stackSize = 0;
+  }
+
+  private int peek() {
+    if (stackSize == 0) {
+      throw new IllegalStateException("JsonWriter is closed.");
+    }
+    return stack[stackSize - 1];
+  }
+
+  private void push(final int newTop) {
+    if (stackSize == stack.length) {
+      final int[] newStack = new int[stackSize * 2];
+      System.arraycopy(stack, 0, newStack, 0, stackSize);
+      stack = newStack;
+    }
+    stack[stackSize++] = newTop;
+  }
+
+  private void beforeValue() {
+    switch (peek()) {
+    case EMPTY_DOCUMENT:
+    case NONEMPTY_DOCUMENT:
+      stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+      break;
+    case EMPTY_ARRAY:
+    case NONEMPTY_ARRAY:
+      stack[stackSize - 1] = NONEMPTY_ARRAY;
+      break;
+    case DANGLING_NAME:
+      stack[stackSize - 1] = NONEMPTY_OBJECT;
+      break;
+    default:
+      throw new IllegalStateException("Nesting problem.");
+    }
+  }
+
+  /**
+   * Starts a new name table after each top-level value, or, with shared names,
+   * after a top-level value that filled the table.
+   */
+  private void afterValue() {
+    if (stackSize == 1 && (!sharedNames || names.size() >= BinaryFormat.MAX_NAMES)) {
+      names.clear();
+    }
+  }
+
+  private void writeByte(final int b) {
+    if (count == buffer.length) {
+      flushBuffer();
+    }
+    buffer[count++] = (byte) b;
+  }
+
+  private void writeVarint(long value) {
+    if (count > buffer.length - 10) {
+      flushBuffer();
+    }
+    final byte[] buffer = this.buffer;
+    while ((value & ~0x7fL) != 0) {
+      buffer[count++] = (byte) ((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    buffer[count++] = (byte) value;
+  }
+
+  private void writeBytes(final byte[] bytes) {
+    if (bytes.length > buffer.length - count) {
+      flushBuffer();
+      if (bytes.length > buffer.length) {
+        call(() -> out.write(bytes));
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buffer, count, bytes.length);
+    count += bytes.length;
+  }
+
+  /**
+   * Writes the UTF-8 length and bytes of {@code s}, encoding directly into the
+   * buffer. Unpaired surrogates are encoded as {@code '?'} like {@link
+   * String#getBytes(java.nio.charset.Charset)} does.
+   */
+  private void writeUtf8(final String s) {
+    final int length = s.length();
+    long utf8Length = length;
+    for (int i = 0; i < length; i++) {
+      final char c = s.charAt(i);
+      if (c >= 0x80) {
+        if (c < 0x800) {
+          utf8Length++;
+        } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+          utf8Length += 2;
+          i++;
+        } else if (!Character.isSurrogate(c)) {
+          utf8Length += 2;
+        }
+      }
+    }
+    writeVarint(utf8Length);
+    final byte[] buffer = this.buffer;
+    for (int i = 0; i < length; i++) {
+      if (count > buffer.length - 4) {
+        flushBuffer();
+      }
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        buffer[count++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[count++] = (byte) (0xc0 | (c >> 6));
+        buffer[count++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+        buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+        buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        buffer[count++] = '?';
+      } else {
+        buffer[count++] = (byte) (0xe0 | (c >> 12));
+        buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buffer[count++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+  }
+
+  private void flushBuffer() {
+    if (count > 0) {
+      final int n = count;
+      count = 0;
+      call(() -> out.write(buffer, 0, n));
+    }
+  }
+}
@@ -0,0 +1,363 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.call;
+import static com.github.gv2011.util.ex.Exceptions.wrap;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.github.gv2011.util.AutoCloseableNt;
+import com.github.gv2011.util.json.JsonWriter;
+import com.github.gv2011.util.num.Decimal;
+
+/**
+ * Writes canonical JSON in the style of
+ * <a href="https://www.rfc-editor.org/rfc/rfc8785">RFC 8785</a> (JSON
+ * Canonicalization Scheme): no whitespace, object members sorted by the UTF-16
+ * code units of their names, numbers in ECMAScript notation and only the
+ * escapes required by JSON.
+ *
+ * <p>Sorting requires the members of an object to be known before the object
+ * can be written, so an object is buffered until it is closed. Nested objects
+ * are kept as a tree of member buffers, so each character is buffered once
+ * and the whole tree is written when its outermost object closes. Arrays and
+ * values outside of objects are streamed directly to the underlying {@link
+ * Writer}. Unlike {@link GsonWriter}, members with a {@code null} value are
+ * always written. Names and strings containing unpaired surrogates, which
+ * I-JSON and therefore RFC 8785 forbid, are rejected with an {@link
+ * IllegalArgumentException}.
+ *
+ * <p>Instances of this class are not thread safe.
+ */
+public final class CanonicalGsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Writer out;
+
+  /** The innermost open array or object, null at document level. */
+  private Scope scope;
+
+  /** Where output currently goes; null for the underlying writer. */
+  private Buffer target;
+
+  /** Used to escape names when a buffered object is written. */
+  private final StringBuilder scratch = new StringBuilder();
+
+  private boolean documentStarted;
+  private boolean closed;
+
+  public CanonicalGsonWriter(final Writer out) {
+    assert out != null;
+    this.out = out;
+  }
+
+  @Override
+  public void beginArray() {
+    beforeValue();
+    write('[');
+    scope = new Scope(scope, false, target);
+  }
+
+  @Override
+  public void endArray() {
+    if (scope == null || scope.object) {
+      throw new IllegalStateException("Nesting problem.");
+    }
+    scope = scope.parent;
+    write(']');
+  }
+
+  @Override
+  public void beginObject() {
+    beforeValue();
+    scope = new Scope(scope, true, target);
+    if (target != null) {
+      target.add(scope.members);
+    }
+  }
+
+  @Override
+  public void endObject() {
+    final Scope object = scope;
+    if (object == null || !object.object) {
+      throw new IllegalStateException("Nesting problem.");
+    }
+    if (object.danglingName != null) {
+      throw new IllegalStateException("Dangling name: " + object.danglingName);
+    }
+    scope = object.parent;
+    target = object.parentTarget;
+    if (target == null) {
+      // The outermost buffered object: write the whole tree.
+      try {
+        write(object.members);
+      } catch (final IOException e) {
+        throw wrap(e);
+      }
+    }
+  }
+
+  @Override
+  public void name(final String name) {
+    if (name == null) {
+      throw new NullPointerException("name == null");
+    }
+    if (scope == null || !scope.object || scope.danglingName != null) {
+      throw new IllegalStateException("Nesting problem.");
+    }
+    // Names are only escaped when the object is written, so check them now.
+    for (int i = 0; i < name.length(); i++) {
+      if (Character.isSurrogate(name.charAt(i))) {
+        i = checkSurrogatePair(name, i);
+      }
+    }
+    final Buffer value = new Buffer();
+    if (scope.members.putIfAbsent(name, value) != null) {
+      throw new IllegalStateException("Duplicate name: " + name);
+    }
+    scope.danglingName = name;
+    target = value;
+  }
+
+  @Override
+  public void nullValue() {
+    beforeValue();
+    write("null");
+  }
+
+  @Override
+  public void writeString(final String value) {
+    assert value != null;
+    beforeValue();
+    string(value);
+  }
+
+  @Override
+  public void writeBoolean(final boolean value) {
+    beforeValue();
+    write(value ? "true" : "false");
+  }
+
+  @Override
+  public void writeDecimal(final Decimal value) {
+    assert value != null;
+    beforeValue();
+    write(value.toEcmaString());
+  }
+
+  @Override
+  public void flush() {
+    if (closed) {
+      throw new IllegalStateException("Closed.");
+    }
+    call(out::flush);
+  }
+
+  @Override
+  public void close() {
+    call(out::close);
+    if (scope != null || !documentStarted) {
+      throw new RuntimeException("Incomplete document");
+    }
+    closed = true;
+  }
+
+  private void beforeValue() {
+    if (closed) {
+      throw new IllegalStateException("JsonWriter is closed.");
+    }
+    if (scope == null) {
+      if (documentStarted) {
+        throw new IllegalStateException("JSON must have only one top-level value.");
+      }
+      documentStarted = true;
+    } else if (scope.object) {
+      if (scope.danglingName == null) {
+        throw new IllegalStateException("Nesting problem.");
+      }
+      scope.danglingName = null;
+    } else {
+      if (scope.nonEmpty) {
+        write(',');
+      }
+      scope.nonEmpty = true;
+    }
+  }
+
+  private void string(final String value) {
+    if (target != null) {
+      escape(target.text(), value);
+    } else {
+      write(escape(new StringBuilder(value.length() + 2), value));
+    }
+  }
+
+  /**
+   * Appends a string with the escaping of RFC 8785: the two-character escapes
+   * where JSON defines one, {@code \}{@code u00xx} with lower case hex digits
+   * for the remaining control characters, everything else verbatim.
+   *
+   * @throws IllegalArgumentException if {@code value} contains an unpaired
+   *     surrogate.
+   */
+  private static StringBuilder escape(final StringBuilder sb, final String value) {
+    sb.append('"');
+    int last = 0;
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\') {
+        if (Character.isSurrogate(c)) {
+          i = checkSurrogatePair(value, i);
+        }
+        continue;
+      }
+      sb.append(value, last, i);
+      switch (c) {
+      case '"':
+        sb.append("\\\"");
+        break;
+      case '\\':
+        sb.append("\\\\");
+        break;
+      case '\b':
+        sb.append("\\b");
+        break;
+      case '\f':
+        sb.append("\\f");
+        break;
+      case '\n':
+        sb.append("\\n");
+        break;
+      case '\r':
+        sb.append("\\r");
+        break;
+      case '\t':
+        sb.append("\\t");
+        break;
+      default:
+        sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+      }
+      last = i + 1;
+    }
+    sb.append(value, last, length);
+    sb.append('"');
+    return sb;
+  }
+
+  /**
+   * Returns the index of the low surrogate that completes the high surrogate
+   * at {@code index}.
+   *
+   * @throws IllegalArgumentException if the surrogate at {@code index} is
+   *     not the start of a pair.
+   */
+  private static int checkSurrogatePair(final String value, final int index) {
+    if (
+      Character.isHighSurrogate(value.charAt(index))
+      && index + 1 < value.length()
+      && Character.isLowSurrogate(value.charAt(index + 1))
+    ) {
+      return index + 1;
+    }
+    throw new IllegalArgumentException("Unpaired surrogate at index " + index + ".");
+  }
+
+  private void write(final char c) {
+    if (target != null) {
+      target.text().append(c);
+    } else {
+      try {
+        out.write(c);
+      } catch (final IOException e) {
+        throw wrap(e);
+      }
+    }
+  }
+
+  private void write(final CharSequence s) {
+    if (target != null) {
+      target.text().append(s);
+    } else {
+      try {
+        out.append(s);
+      } catch (final IOException e) {
+        throw wrap(e);
+      }
+    }
+  }
+
+  private void write(final Members members) throws IOException {
+    out.write('{');
+    boolean first = true;
+    for (final Map.Entry<String, Buffer> member : members.entrySet()) {
+      if (!first) {
+        out.write(',');
+      }
+      first = false;
+      scratch.setLength(0);
+      out.append(escape(scratch, member.getKey()));
+      out.write(':');
+      for (final Object part : member.getValue().parts) {
+        if (part instanceof Members) {
+          write((Members) part);
+        } else {
+          out.append((StringBuilder) part);
+        }
+      }
+    }
+    out.write('}');
+  }
+
+  private static final class Scope {
+    private final Scope parent;
+    private final boolean object;
+    /** The output target to restore when an object is closed. */
+    private final Buffer parentTarget;
+    private final Members members;
+    private String danglingName;
+    private boolean nonEmpty;
+
+    private Scope(final Scope parent, final boolean object, final Buffer parentTarget) {
+      this.parent = parent;
+      this.object = object;
+      this.parentTarget = parentTarget;
+      members = object ? new Members() : null;
+    }
+  }
+
+  /**
+   * The members of an object, sorted by name (String order is UTF-16 code unit order).
+   */
+  private static final class Members extends TreeMap<String, Buffer> {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * The buffered value of a member: text interleaved with the nested objects
+   * it contains, which are written in place when the tree is written.
+   */
+  private static final class Buffer {
+    /** StringBuilders and Members, in output order. */
+    private final ArrayList<Object> parts = new ArrayList<>(1);
+    private StringBuilder text;
+
+    private StringBuilder text() {
+      if (text == null) {
+        text = new StringBuilder();
+        parts.add(text);
+      }
+      return text;
+    }
+
+    private void add(final Members object) {
+      parts.add(object);
+      text = null;
+    }
+  }
+}
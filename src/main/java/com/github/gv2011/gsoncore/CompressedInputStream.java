@@ -0,0 +1,149 @@
+package com.github.gv2011.gsoncore;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses gzip or zlib input with a pooled {@link Inflater}, which is
+ * returned to the pool on {@link #close()}. Unlike {@link
+ * java.util.zip.GZIPInputStream}, which always creates its own inflater.
+ */
+final class CompressedInputStream extends InflaterInputStream {
+
+  /** The size of the deflate window, large enough to take a typical read in one go. */
+  static final int BUFFER_SIZE = 32 * 1024;
+
+  private static final int POOL_SIZE = 16;
+  private static final ArrayBlockingQueue<Inflater> GZIP_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+  private static final ArrayBlockingQueue<Inflater> ZLIB_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private final boolean gzip;
+  private final CRC32 crc;
+  private boolean headerRead = false;
+  private boolean eof = false;
+  private boolean closed = false;
+
+  CompressedInputStream(final InputStream in, final boolean gzip) {
+    super(in, inflater(gzip), BUFFER_SIZE);
+    this.gzip = gzip;
+    crc = gzip ? new CRC32() : null;
+  }
+
+  private static Inflater inflater(final boolean gzip) {
+    final Inflater inflater = (gzip ? GZIP_POOL : ZLIB_POOL).poll();
+    // gzip has its own header and trailer, so the inflater sees raw deflate data.
+    return inflater != null ? inflater : new Inflater(gzip);
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (eof) {
+      return -1;
+    }
+    if (gzip && !headerRead) {
+      headerRead = true;
+      readHeader();
+    }
+    final int n = super.read(b, off, len);
+    if (n == -1) {
+      if (gzip) {
+        readTrailer();
+      }
+      eof = true;
+    } else if (gzip) {
+      crc.update(b, off, n);
+    }
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      inf.reset();
+      if (!(gzip ? GZIP_POOL : ZLIB_POOL).offer(inf)) {
+        inf.end();
+      }
+      in.close();
+    }
+  }
+
+  private void readHeader() throws IOException {
+    if (readUByte() != 0x1f || readUByte() != 0x8b) {
+      throw new ZipException("Not in GZIP format");
+    }
+    if (readUByte() != 8) {
+      throw new ZipException("Unsupported compression method");
+    }
+    final int flags = readUByte();
+    skipBytes(6); // mtime, xfl, os
+    if ((flags & FEXTRA) != 0) {
+      skipBytes(readUByte() | (readUByte() << 8));
+    }
+    if ((flags & FNAME) != 0) {
+      while (readUByte() != 0) {}
+    }
+    if ((flags & FCOMMENT) != 0) {
+      while (readUByte() != 0) {}
+    }
+    if ((flags & FHCRC) != 0) {
+      skipBytes(2);
+    }
+  }
+
+  /**
+   * Checks CRC and size. The trailer starts with the input the inflater has
+   * not consumed, the rest comes from the underlying stream.
+   */
+  private void readTrailer() throws IOException {
+    final byte[] trailer = new byte[8];
+    final int remaining = inf.getRemaining();
+    final int buffered = Math.min(remaining, 8);
+    System.arraycopy(buf, len - remaining, trailer, 0, buffered);
+    for (int i = buffered; i < 8; i++) {
+      trailer[i] = (byte) readUByte();
+    }
+    if (le32(trailer, 0) != crc.getValue()) {
+      throw new ZipException("Corrupt GZIP trailer (CRC)");
+    }
+    if (le32(trailer, 4) != (inf.getBytesWritten() & 0xffffffffL)) {
+      throw new ZipException("Corrupt GZIP trailer (size)");
+    }
+    // Only single-member streams are supported, so anything after the trailer is an error.
+    if (remaining > 8 || in.read() != -1) {
+      throw new ZipException("Trailing data after GZIP trailer");
+    }
+  }
+
+  private static long le32(final byte[] b, final int off) {
+    return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xffL) << 24;
+  }
+
+  private int readUByte() throws IOException {
+    final int b = in.read();
+    if (b == -1) {
+      throw new EOFException("Unexpected end of GZIP stream");
+    }
+    return b;
+  }
+
+  private void skipBytes(int n) throws IOException {
+    while (n-- > 0) {
+      readUByte();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.gv2011.gsoncore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses to gzip or zlib with a pooled {@link Deflater}, which is returned
+ * to the pool on {@link #close()}. Unlike {@link
+ * java.util.zip.GZIPOutputStream}, which always creates its own deflater.
+ */
+final class CompressedOutputStream extends DeflaterOutputStream {
+
+  private static final int POOL_SIZE = 16;
+  private static final ArrayBlockingQueue<Deflater> GZIP_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+  private static final ArrayBlockingQueue<Deflater> ZLIB_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final boolean gzip;
+  private final CRC32 crc;
+  private boolean headerWritten = false;
+  private boolean finished = false;
+  private boolean closed = false;
+
+  CompressedOutputStream(final OutputStream out, final boolean gzip) {
+    super(out, deflater(gzip), CompressedInputStream.BUFFER_SIZE);
+    this.gzip = gzip;
+    crc = gzip ? new CRC32() : null;
+  }
+
+  private static Deflater deflater(final boolean gzip) {
+    final Deflater deflater = (gzip ? GZIP_POOL : ZLIB_POOL).poll();
+    return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    writeHeader();
+    super.write(b, off, len);
+    if (gzip) {
+      crc.update(b, off, len);
+    }
+  }
+
+  @Override
+  public void finish() throws IOException {
+    if (!finished) {
+      finished = true;
+      writeHeader();
+      super.finish();
+      if (gzip) {
+        final long crc = this.crc.getValue();
+        final long size = def.getBytesRead();
+        out.write(new byte[]{
+          (byte) crc, (byte) (crc >> 8), (byte) (crc >> 16), (byte) (crc >> 24),
+          (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+        });
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      try {
+        finish();
+      } finally {
+        def.reset();
+        if (!(gzip ? GZIP_POOL : ZLIB_POOL).offer(def)) {
+          def.end();
+        }
+        out.close();
+      }
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    if (gzip && !headerWritten) {
+      headerWritten = true;
+      out.write(GZIP_HEADER);
+    }
+  }
+}
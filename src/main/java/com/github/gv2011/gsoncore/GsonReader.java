@@ -18,10 +18,14 @@
 package com.github.gv2011.gsoncore;
 
 import static com.github.gv2011.util.CollectionUtils.pair;
-import static com.github.gv2011.util.ex.Exceptions.call;
 
+import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.function.BiConsumer;
 
 import com.github.gv2011.util.Pair;
 import com.github.gv2011.util.XStream;
@@ -243,11 +247,26 @@ public class GsonReader implements JsonReader{
   private final JsonFactory jf;
 
   /** The input JSON. */
-  private final Reader in;
+  private JsonSource in;
 
   /** True to accept non-spec compliant JSON */
   private final boolean lenient;
 
+  /** True to skip arrays and objects by scanning for the matching bracket only. */
+  private boolean rawSkip = false;
+
+  /** True to create exceptions for malformed input without stack trace and message. */
+  private boolean cheapErrors = false;
+
+  /** True to accept any number of top-level values, as in NDJSON. */
+  private boolean documentSequence = false;
+
+  /** The enforced limits, null if there are none. */
+  private JsonLimits limits;
+
+  /** The number of members read per object on the stack, allocated when first needed. */
+  private int[] memberCounts;
+
   /**
    * Use a manual buffer to easily read and unread upcoming characters, and
    * also so we can create strings without an intermediate StringBuilder.
@@ -282,6 +301,12 @@ public class GsonReader implements JsonReader{
    */
   private String peekedString;
 
+  /**
+   * The offset of the first character of the peeked value in the input, used
+   * to return its source text.
+   */
+  private long peekedStart;
+
   /*
    * The nesting stack. Using a manual array rather than an ArrayList saves 20%.
    */
@@ -302,6 +327,38 @@ public class GsonReader implements JsonReader{
   private String[] pathNames = new String[32];
   private int[] pathIndices = new int[32];
 
+  /** False to skip maintaining pathNames and pathIndices. */
+  private boolean trackPath = true;
+
+  /** The number of characters that have been discarded from the start of the buffer. */
+  private long bufferOffset = 0;
+
+  /**
+   * The end of the data in the buffer. {@code limit} is lower while the data
+   * after it would exceed the maximum document size.
+   */
+  private int bufferedLimit = 0;
+
+  /** The input offset at which the current document started. */
+  private long documentStart = 0;
+
+  /**
+   * While a raw value is read, this collects the characters before
+   * captureStart that are discarded from the buffer.
+   */
+  private StringBuilder capture;
+  private int captureStart;
+
+  /** Receives the counters below on close, may be null. */
+  private JsonMetrics metrics;
+  private long metricsStart;
+  /** True while the counters below are maintained, for metrics or a JFR event. */
+  private boolean counting;
+  private long tokenCount;
+  private long refillCount;
+  private long escapeCount;
+  private int maxDepth;
+
   /**
    * Creates a new instance that reads a JSON-encoded stream from {@code in}.
    */
@@ -318,6 +375,35 @@ public class GsonReader implements JsonReader{
    * Creates a new instance that reads a JSON-encoded stream from {@code in}.
    */
   public GsonReader(final JsonFactory jf, Reader in, boolean lenient) {
+    this(jf, JsonSource.of(in), lenient);
+  }
+
+  /**
+   * Creates a new instance that reads JSON from {@code in}. Wrap a {@code
+   * char[]} with {@link java.nio.CharBuffer#wrap(char[])} to read it without
+   * copying it first.
+   */
+  public GsonReader(final JsonFactory jf, CharSequence in) {
+    this(jf, JsonSource.of(in), false);
+  }
+
+  /**
+   * Creates a new instance that reads UTF-8 encoded JSON from {@code in}.
+   * Decoding is not synchronized, unlike with {@link java.io.InputStreamReader}.
+   */
+  public GsonReader(final JsonFactory jf, InputStream in) {
+    this(jf, JsonSource.of(in), false);
+  }
+
+  /**
+   * Creates a new instance that reads the remaining UTF-8 encoded bytes of
+   * {@code in}.
+   */
+  public GsonReader(final JsonFactory jf, ByteBuffer in) {
+    this(jf, JsonSource.of(in), false);
+  }
+
+  private GsonReader(final JsonFactory jf, JsonSource in, boolean lenient) {
     this.jf = jf;
     this.in = in;
     this.lenient = lenient;
@@ -361,6 +447,103 @@ public class GsonReader implements JsonReader{
     return lenient;
   }
 
+  /**
+   * Configures whether the names and array indices of the current location
+   * are tracked. They are only needed for {@link #getPath()}, which is used in
+   * error messages. Without tracking, error messages report the character
+   * offset instead of the path. This should be configured before reading
+   * starts.
+   */
+  public final void setPathTracking(boolean trackPath) {
+    this.trackPath = trackPath;
+  }
+
+  /**
+   * Returns true if the path of the current location is tracked.
+   */
+  public final boolean isPathTracking() {
+    return trackPath;
+  }
+
+  /**
+   * Configures {@link #skipValue()} to skip arrays and objects by only tracking
+   * bracket depth and string state, without classifying the nested tokens. This
+   * is considerably faster for large unknown values, but the skipped content is
+   * not validated: malformed JSON inside a skipped array or object is not
+   * detected.
+   */
+  public final void setRawSkip(boolean rawSkip) {
+    this.rawSkip = rawSkip;
+  }
+
+  /**
+   * Returns true if arrays and objects are skipped without validation.
+   */
+  public final boolean isRawSkip() {
+    return rawSkip;
+  }
+
+  /**
+   * Configures how malformed input is reported. With cheap errors, a {@link
+   * MalformedJsonException} is created without stack trace, line, column or
+   * path, and its message is only built when it is requested. This makes
+   * rejecting invalid input about as cheap as accepting valid input, see also
+   * {@link #validate()}.
+   */
+  public final void setCheapErrors(boolean cheapErrors) {
+    this.cheapErrors = cheapErrors;
+  }
+
+  /**
+   * Returns true if malformed input is reported without stack traces.
+   */
+  public final boolean isCheapErrors() {
+    return cheapErrors;
+  }
+
+  /**
+   * Configures whether the input is a sequence of top-level values separated
+   * by whitespace, like newline delimited JSON (NDJSON), instead of a single
+   * value. Use {@link #hasNextDocument()} to check for the next value. An empty
+   * sequence is valid.
+   */
+  public final void setDocumentSequence(boolean documentSequence) {
+    this.documentSequence = documentSequence;
+  }
+
+  /**
+   * Returns true if the input may contain any number of top-level values.
+   */
+  public final boolean isDocumentSequence() {
+    return documentSequence;
+  }
+
+  /**
+   * Sets the resource limits for the input. Must be called before reading.
+   */
+  public final void setLimits(JsonLimits limits) {
+    this.limits = limits == JsonLimits.NONE ? null : limits;
+  }
+
+  public final JsonLimits getLimits() {
+    return limits == null ? JsonLimits.NONE : limits;
+  }
+
+  /**
+   * Starts counting tokens, characters, buffer refills, escapes and nesting
+   * depth. The counters and the elapsed time are passed to {@code metrics}
+   * when this reader is closed. Without metrics, nothing is counted.
+   */
+  public final void setMetrics(JsonMetrics metrics) {
+    this.metrics = metrics;
+    counting = metrics != null;
+    tokenCount = 0;
+    refillCount = 0;
+    escapeCount = 0;
+    maxDepth = 0;
+    metricsStart = metrics == null ? 0 : System.nanoTime();
+  }
+
   /**
    * Consumes the next token from the JSON stream and asserts that it is the
    * beginning of a new array.
@@ -373,11 +556,12 @@ public class GsonReader implements JsonReader{
     }
     if (p == PEEKED_BEGIN_ARRAY) {
       push(JsonScope.EMPTY_ARRAY);
-      pathIndices[stackSize - 1] = 0;
+      if (trackPath) {
+        pathIndices[stackSize - 1] = 0;
+      }
       peeked = PEEKED_NONE;
     } else {
-      throw new IllegalStateException("Expected BEGIN_ARRAY but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected BEGIN_ARRAY but was " + peek() + location());
     }
   }
 
@@ -393,11 +577,10 @@ public class GsonReader implements JsonReader{
     }
     if (p == PEEKED_END_ARRAY) {
       stackSize--;
-      pathIndices[stackSize - 1]++;
+      advancePath();
       peeked = PEEKED_NONE;
     } else {
-      throw new IllegalStateException("Expected END_ARRAY but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected END_ARRAY but was " + peek() + location());
     }
   }
 
@@ -415,8 +598,7 @@ public class GsonReader implements JsonReader{
       push(JsonScope.EMPTY_OBJECT);
       peeked = PEEKED_NONE;
     } else {
-      throw new IllegalStateException("Expected BEGIN_OBJECT but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected BEGIN_OBJECT but was " + peek() + location());
     }
   }
 
@@ -432,12 +614,13 @@ public class GsonReader implements JsonReader{
     }
     if (p == PEEKED_END_OBJECT) {
       stackSize--;
-      pathNames[stackSize] = null; // Free the last path name so that it can be garbage collected!
-      pathIndices[stackSize - 1]++;
+      if (trackPath) {
+        pathNames[stackSize] = null; // Free the last path name so that it can be garbage collected!
+        pathIndices[stackSize - 1]++;
+      }
       peeked = PEEKED_NONE;
     } else {
-      throw new IllegalStateException("Expected END_OBJECT but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected END_OBJECT but was " + peek() + location());
     }
   }
 
@@ -453,6 +636,25 @@ public class GsonReader implements JsonReader{
     return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY;
   }
 
+  /**
+   * Returns true if there is another top-level value. May only be called
+   * between top-level values.
+   */
+  public boolean hasNextDocument() {
+    if (stackSize != 1) {
+      throw new IllegalStateException("Not at top level: " + getPath());
+    }
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      // Every document of a sequence is limited separately.
+      documentStart = bufferOffset + pos;
+      limit = bufferedLimit;
+      limitDocument();
+      p = doPeek();
+    }
+    return p != PEEKED_EOF;
+  }
+
   /**
    * Returns the type of the next token without consuming it.
    */
@@ -496,6 +698,14 @@ public class GsonReader implements JsonReader{
   }
 
   int doPeek() {
+    final int p = peekToken();
+    if (counting) {
+      tokenCount++;
+    }
+    return p;
+  }
+
+  private int peekToken() {
     int peekStack = stack[stackSize - 1];
     if (peekStack == JsonScope.EMPTY_ARRAY) {
       stack[stackSize - 1] = JsonScope.NONEMPTY_ARRAY;
@@ -510,7 +720,7 @@ public class GsonReader implements JsonReader{
       case ',':
         break;
       default:
-        throw syntaxError("Unterminated array");
+        throw syntaxError(JsonError.UNTERMINATED_ARRAY);
       }
     } else if (peekStack == JsonScope.EMPTY_OBJECT || peekStack == JsonScope.NONEMPTY_OBJECT) {
       stack[stackSize - 1] = JsonScope.DANGLING_NAME;
@@ -525,10 +735,13 @@ public class GsonReader implements JsonReader{
         case ',':
           break;
         default:
-          throw syntaxError("Unterminated object");
+          throw syntaxError(JsonError.UNTERMINATED_OBJECT);
         }
       }
       int c = nextNonWhitespace(true);
+      if (limits != null && c != '}') {
+        countMember();
+      }
       switch (c) {
       case '"':
         return peeked = PEEKED_DOUBLE_QUOTED_NAME;
@@ -539,7 +752,7 @@ public class GsonReader implements JsonReader{
         if (peekStack != JsonScope.NONEMPTY_OBJECT) {
           return peeked = PEEKED_END_OBJECT;
         } else {
-          throw syntaxError("Expected name");
+          throw syntaxError(JsonError.EXPECTED_NAME);
         }
       default:
         checkLenient();
@@ -547,7 +760,7 @@ public class GsonReader implements JsonReader{
         if (isLiteral((char) c)) {
           return peeked = PEEKED_UNQUOTED_NAME;
         } else {
-          throw syntaxError("Expected name");
+          throw syntaxError(JsonError.EXPECTED_NAME);
         }
       }
     } else if (peekStack == JsonScope.DANGLING_NAME) {
@@ -564,19 +777,27 @@ public class GsonReader implements JsonReader{
         }
         break;
       default:
-        throw syntaxError("Expected ':'");
+        throw syntaxError(JsonError.EXPECTED_COLON);
       }
     } else if (peekStack == JsonScope.EMPTY_DOCUMENT) {
       if (lenient) {
         consumeNonExecutePrefix();
       }
       stack[stackSize - 1] = JsonScope.NONEMPTY_DOCUMENT;
+      if (documentSequence) {
+        if (nextNonWhitespace(false) == -1) {
+          return peeked = PEEKED_EOF;
+        }
+        pos--;
+      }
     } else if (peekStack == JsonScope.NONEMPTY_DOCUMENT) {
       int c = nextNonWhitespace(false);
       if (c == -1) {
         return peeked = PEEKED_EOF;
       } else {
-        checkLenient();
+        if (!documentSequence) {
+          checkLenient();
+        }
         pos--;
       }
     } else if (peekStack == JsonScope.CLOSED) {
@@ -584,6 +805,7 @@ public class GsonReader implements JsonReader{
     }
 
     int c = nextNonWhitespace(true);
+    peekedStart = bufferOffset + pos - 1;
     switch (c) {
     case ']':
       if (peekStack == JsonScope.EMPTY_ARRAY) {
@@ -598,7 +820,7 @@ public class GsonReader implements JsonReader{
         pos--;
         return peeked = PEEKED_NULL;
       } else {
-        throw syntaxError("Unexpected value");
+        throw syntaxError(JsonError.UNEXPECTED_VALUE);
       }
     case '\'':
       checkLenient();
@@ -624,7 +846,7 @@ public class GsonReader implements JsonReader{
     }
 
     if (!isLiteral(buffer[pos])) {
-      throw syntaxError("Expected value");
+      throw syntaxError(JsonError.EXPECTED_VALUE);
     }
 
     checkLenient();
@@ -764,9 +986,14 @@ public class GsonReader implements JsonReader{
       }
     }
 
+    if (limits != null && i > limits.maxNumberLength()) {
+      throw syntaxError(JsonError.NUMBER_LIMIT);
+    }
+
     // We've read a complete number. Decide if it's a PEEKED_LONG or a PEEKED_NUMBER.
     if (last == NUMBER_CHAR_DIGIT && fitsInLong && (value != Long.MIN_VALUE || negative)) {
       peekedLong = negative ? value : -value;
+      peekedNumberLength = i;
       pos += i;
       return peeked = PEEKED_LONG;
     } else if (last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT
@@ -824,11 +1051,281 @@ public class GsonReader implements JsonReader{
     } else if (p == PEEKED_DOUBLE_QUOTED_NAME) {
       result = nextQuotedValue('"');
     } else {
-      throw new IllegalStateException("Expected a name but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected a name but was " + peek() + location());
     }
     peeked = PEEKED_NONE;
-    pathNames[stackSize - 1] = result;
+    if (trackPath) {
+      pathNames[stackSize - 1] = result;
+    }
+    return result;
+  }
+
+  /**
+   * Consumes the next name and returns its slot in {@code schema}, or -1 if the
+   * name is not part of the schema. Unescaped names that are completely
+   * contained in the buffer are matched without creating a string.
+   */
+  public int readName(JsonSchema schema) {
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+    if (p == PEEKED_DOUBLE_QUOTED_NAME) {
+      char[] buffer = this.buffer;
+      for (int i = pos, l = limit; i < l; i++) {
+        char c = buffer[i];
+        if (c == '"') {
+          if (limits != null) {
+            checkStringLength(i - pos);
+          }
+          int slot = schema.slot(buffer, pos, i - pos);
+          if (trackPath) {
+            pathNames[stackSize - 1] = slot >= 0 ? schema.name(slot) : new String(buffer, pos, i - pos);
+          }
+          pos = i + 1;
+          peeked = PEEKED_NONE;
+          return slot;
+        } else if (c == '\\' || c == '\n') {
+          break;
+        }
+      }
+    }
+    return schema.slot(readName());
+  }
+
+  /**
+   * Consumes the next object, storing the values of the members known to
+   * {@code schema} in {@code values}. Unknown members are skipped. Members
+   * with a {@code null} value are treated as missing.
+   *
+   * @throws IllegalArgumentException if {@code values} was not created by {@code schema}.
+   * @throws IllegalStateException if a value does not match the type of its slot.
+   * @throws NumberFormatException if a number does not fit into its slot.
+   */
+  public void readObject(JsonSchema schema, JsonSchema.Values values) {
+    if (values.schema() != schema) {
+      throw new IllegalArgumentException("The values were not created by this schema.");
+    }
+    values.clear();
+    readObjectStart();
+    while (hasNext()) {
+      int slot = readName(schema);
+      if (slot < 0) {
+        skipValue();
+      } else {
+        int p = peeked;
+        if (p == PEEKED_NONE) {
+          p = doPeek();
+        }
+        if (p == PEEKED_NULL) {
+          readNullRaw();
+        } else {
+          switch (schema.type(slot)) {
+          case BOOLEAN:
+            values.longs[slot] = readBooleanRaw() ? 1L : 0L;
+            break;
+          case INT:
+            values.longs[slot] = nextInt();
+            break;
+          case LONG:
+            values.longs[slot] = nextLong();
+            break;
+          case DOUBLE:
+            values.doubles[slot] = nextDoubleOld();
+            break;
+          case STRING:
+            values.strings[slot] = readStringRaw();
+            break;
+          default:
+            throw new AssertionError();
+          }
+          values.present[slot] = true;
+        }
+      }
+    }
+    readObjectEnd();
+  }
+
+  /**
+   * Consumes the next array, whose elements must be numbers, into a {@code
+   * long[]}. Plain integer literals are stored without creating any object
+   * and without updating the path. The path is set for each element that is
+   * read the general way, e.g. a number with a fraction or, if lenient, a
+   * quoted one, and after the last element. An error in such an element reports
+   * its own path, while other errors within the array may report the path of
+   * an earlier element.
+   *
+   * @throws NumberFormatException if an element cannot be exactly represented
+   *     as a long.
+   */
+  public long[] readLongArray() {
+    readArrayStart();
+    long[] result = new long[16];
+    int n = 0;
+    while (hasNext()) {
+      if (n == result.length) {
+        result = Arrays.copyOf(result, n * 2);
+      }
+      if (peeked == PEEKED_LONG) {
+        peeked = PEEKED_NONE;
+        result[n++] = peekedLong;
+      } else {
+        pathIndex(n);
+        result[n++] = nextLong();
+      }
+    }
+    endNumberArray(n);
+    return n == result.length ? result : Arrays.copyOf(result, n);
+  }
+
+  /**
+   * Like {@link #readLongArray()}, for ints.
+   *
+   * @throws NumberFormatException if an element cannot be exactly represented
+   *     as an int.
+   */
+  public int[] readIntArray() {
+    readArrayStart();
+    int[] result = new int[16];
+    int n = 0;
+    while (hasNext()) {
+      if (n == result.length) {
+        result = Arrays.copyOf(result, n * 2);
+      }
+      if (peeked == PEEKED_LONG && peekedLong == (int) peekedLong) {
+        peeked = PEEKED_NONE;
+        result[n++] = (int) peekedLong;
+      } else {
+        pathIndex(n);
+        result[n++] = nextInt();
+      }
+    }
+    endNumberArray(n);
+    return n == result.length ? result : Arrays.copyOf(result, n);
+  }
+
+  /**
+   * Like {@link #readLongArray()}, for doubles. All unquoted numbers are
+   * converted directly from the read buffer, with the same rounding as {@link
+   * Double#parseDouble(String)}, and do not update the path.
+   */
+  public double[] readDoubleArray() {
+    readArrayStart();
+    double[] result = new double[16];
+    int n = 0;
+    while (hasNext()) {
+      if (n == result.length) {
+        result = Arrays.copyOf(result, n * 2);
+      }
+      final int p = peeked;
+      if (p == PEEKED_LONG) {
+        peeked = PEEKED_NONE;
+        // The literal -0 is read as the long 0, but must keep its sign as a double.
+        result[n++] = peekedLong == 0 && buffer[pos - peekedNumberLength] == '-' ? -0.0 : peekedLong;
+      } else if (p == PEEKED_NUMBER) {
+        peeked = PEEKED_NONE;
+        result[n++] = parseDouble(pos, peekedNumberLength);
+        pos += peekedNumberLength;
+      } else {
+        pathIndex(n);
+        result[n++] = nextDoubleOld();
+      }
+    }
+    endNumberArray(n);
+    return n == result.length ? result : Arrays.copyOf(result, n);
+  }
+
+  private void endNumberArray(int size) {
+    pathIndex(size);
+    readArrayEnd();
+  }
+
+  /**
+   * Sets the path to element {@code index} of the array being read in bulk.
+   */
+  private void pathIndex(int index) {
+    if (trackPath) {
+      pathIndices[stackSize - 1] = index;
+    }
+  }
+
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+    1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /**
+   * Converts the number literal in {@code buffer[start..start+length)}. If the
+   * significant digits fit into 2^53 and the decimal exponent is at most 22 in
+   * magnitude, both are exact doubles and one multiplication or division
+   * rounds correctly. Other numbers are passed to {@link Double#parseDouble}.
+   */
+  private double parseDouble(int start, int length) {
+    final char[] buffer = this.buffer;
+    final int end = start + length;
+    int i = start;
+    final boolean negative = buffer[i] == '-';
+    if (negative) {
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean fraction = false;
+    for (; i < end; i++) {
+      final char c = buffer[i];
+      if (c == '.') {
+        fraction = true;
+      } else if (c >= '0' && c <= '9') {
+        if (mantissa != 0 || c != '0') {
+          if (++digits > 15) {
+            return parseDoubleSlow(start, length);
+          }
+          mantissa = mantissa * 10 + (c - '0');
+        }
+        if (fraction) {
+          exponent--;
+        }
+      } else {
+        break;
+      }
+    }
+    if (i < end) {
+      // Exponent, the syntax has already been validated by peekNumber().
+      i++;
+      boolean negativeExponent = false;
+      if (buffer[i] == '-' || buffer[i] == '+') {
+        negativeExponent = buffer[i] == '-';
+        i++;
+      }
+      int e = 0;
+      for (; i < end; i++) {
+        if (e > 1000) {
+          return parseDoubleSlow(start, length);
+        }
+        e = e * 10 + (buffer[i] - '0');
+      }
+      exponent += negativeExponent ? -e : e;
+    }
+    final double result;
+    if (mantissa == 0) {
+      result = 0;
+    } else if (exponent < 0 && exponent >= -22) {
+      result = mantissa / POWERS_OF_TEN[-exponent];
+    } else if (exponent >= 0 && exponent <= 22) {
+      result = mantissa * POWERS_OF_TEN[exponent];
+    } else {
+      return parseDoubleSlow(start, length);
+    }
+    return negative ? -result : result;
+  }
+
+  private double parseDoubleSlow(int start, int length) {
+    final String number = new String(buffer, start, length);
+    final double result = Double.parseDouble(number);
+    if (!lenient && Double.isInfinite(result)) {
+      throw syntaxError(JsonError.NON_FINITE_NUMBER, ": " + number);
+    }
     return result;
   }
 
@@ -865,11 +1362,10 @@ public class GsonReader implements JsonReader{
       result = new String(buffer, pos, peekedNumberLength);
       pos += peekedNumberLength;
     } else {
-      throw new IllegalStateException("Expected a string but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected a string but was " + peek() + location());
     }
     peeked = PEEKED_NONE;
-    pathIndices[stackSize - 1]++;
+    advancePath();
     return result;
   }
 
@@ -891,15 +1387,14 @@ public class GsonReader implements JsonReader{
     }
     if (p == PEEKED_TRUE) {
       peeked = PEEKED_NONE;
-      pathIndices[stackSize - 1]++;
+      advancePath();
       return true;
     } else if (p == PEEKED_FALSE) {
       peeked = PEEKED_NONE;
-      pathIndices[stackSize - 1]++;
+      advancePath();
       return false;
     }
-    throw new IllegalStateException("Expected a boolean but was " + peek()
-        + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+    throw new IllegalStateException("Expected a boolean but was " + peek() + location());
   }
   
   
@@ -922,10 +1417,9 @@ public class GsonReader implements JsonReader{
     }
     if (p == PEEKED_NULL) {
       peeked = PEEKED_NONE;
-      pathIndices[stackSize - 1]++;
+      advancePath();
     } else {
-      throw new IllegalStateException("Expected null but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected null but was " + peek() + location());
     }
   }
 
@@ -950,7 +1444,7 @@ public class GsonReader implements JsonReader{
 
     if (p == PEEKED_LONG) {
       peeked = PEEKED_NONE;
-      pathIndices[stackSize - 1]++;
+      advancePath();
       return (double) peekedLong;
     }
 
@@ -962,19 +1456,17 @@ public class GsonReader implements JsonReader{
     } else if (p == PEEKED_UNQUOTED) {
       peekedString = nextUnquotedValue();
     } else if (p != PEEKED_BUFFERED) {
-      throw new IllegalStateException("Expected a double but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected a double but was " + peek() + location());
     }
 
     peeked = PEEKED_BUFFERED;
     double result = Double.parseDouble(peekedString); // don't catch this NumberFormatException.
     if (!lenient && (Double.isNaN(result) || Double.isInfinite(result))) {
-      throw new MalformedJsonException("JSON forbids NaN and infinities: " + result
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw syntaxError(JsonError.NON_FINITE_NUMBER, ": " + result);
     }
     peekedString = null;
     peeked = PEEKED_NONE;
-    pathIndices[stackSize - 1]++;
+    advancePath();
     return result;
   }
   
@@ -991,7 +1483,7 @@ public class GsonReader implements JsonReader{
 
     if (p == PEEKED_LONG) {
       peeked = PEEKED_NONE;
-      pathIndices[stackSize - 1]++;
+      advancePath();
       result = NumUtils.num(peekedLong);
     }
     else{
@@ -1003,19 +1495,18 @@ public class GsonReader implements JsonReader{
       } else if (p == PEEKED_UNQUOTED) {
         peekedString = nextUnquotedValue();
       } else if (p != PEEKED_BUFFERED) {
-        throw new IllegalStateException("Expected a double but was " + peek()
-            + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+        throw new IllegalStateException("Expected a double but was " + peek() + location());
       }
   
       peeked = PEEKED_BUFFERED;
       try {
         result = NumUtils.parse(peekedString);
       } catch (NumberFormatException e) {
-        throw new MalformedJsonException(e);
+        throw syntaxError(JsonError.MALFORMED_NUMBER, ": " + peekedString);
       }
       peekedString = null;
       peeked = PEEKED_NONE;
-      pathIndices[stackSize - 1]++;
+      advancePath();
     }
     return result;
   }
@@ -1038,7 +1529,7 @@ public class GsonReader implements JsonReader{
 
     if (p == PEEKED_LONG) {
       peeked = PEEKED_NONE;
-      pathIndices[stackSize - 1]++;
+      advancePath();
       return peekedLong;
     }
 
@@ -1050,26 +1541,24 @@ public class GsonReader implements JsonReader{
       try {
         long result = Long.parseLong(peekedString);
         peeked = PEEKED_NONE;
-        pathIndices[stackSize - 1]++;
+        advancePath();
         return result;
       } catch (NumberFormatException ignored) {
         // Fall back to parse as a double below.
       }
     } else {
-      throw new IllegalStateException("Expected a long but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected a long but was " + peek() + location());
     }
 
     peeked = PEEKED_BUFFERED;
     double asDouble = Double.parseDouble(peekedString); // don't catch this NumberFormatException.
     long result = (long) asDouble;
     if (result != asDouble) { // Make sure no precision was lost casting to 'long'.
-      throw new NumberFormatException("Expected a long but was " + peekedString
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new NumberFormatException("Expected a long but was " + peekedString + location());
     }
     peekedString = null;
     peeked = PEEKED_NONE;
-    pathIndices[stackSize - 1]++;
+    advancePath();
     return result;
   }
 
@@ -1098,6 +1587,9 @@ public class GsonReader implements JsonReader{
         if (c == quote) {
           pos = p;
           builder.append(buffer, start, p - start - 1);
+          if (limits != null) {
+            checkStringLength(builder.length());
+          }
           return builder.toString();
         } else if (c == '\\') {
           pos = p;
@@ -1114,8 +1606,11 @@ public class GsonReader implements JsonReader{
 
       builder.append(buffer, start, p - start);
       pos = p;
+      if (limits != null) {
+        checkStringLength(builder.length());
+      }
       if (!fillBuffer(1)) {
-        throw syntaxError("Unterminated string");
+        throw syntaxError(JsonError.UNTERMINATED_STRING);
       }
     }
   }
@@ -1169,6 +1664,9 @@ public class GsonReader implements JsonReader{
       builder.append(buffer, pos, i);
       pos += i;
       i = 0;
+      if (limits != null) {
+        checkStringLength(builder.length());
+      }
       if (!fillBuffer(1)) {
         break;
       }
@@ -1179,6 +1677,9 @@ public class GsonReader implements JsonReader{
       result = new String(buffer, pos, i);
     } else {
       builder.append(buffer, pos, i);
+      if (limits != null) {
+        checkStringLength(builder.length());
+      }
       result = builder.toString();
     }
     pos += i;
@@ -1209,7 +1710,7 @@ public class GsonReader implements JsonReader{
       }
       pos = p;
     } while (fillBuffer(1));
-    throw syntaxError("Unterminated string");
+    throw syntaxError(JsonError.UNTERMINATED_STRING);
   }
 
   @SuppressWarnings("incomplete-switch")
@@ -1263,11 +1764,10 @@ public class GsonReader implements JsonReader{
     if (p == PEEKED_LONG) {
       result = (int) peekedLong;
       if (peekedLong != result) { // Make sure no precision was lost casting to 'int'.
-        throw new NumberFormatException("Expected an int but was " + peekedLong
-            + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+        throw new NumberFormatException("Expected an int but was " + peekedLong + location());
       }
       peeked = PEEKED_NONE;
-      pathIndices[stackSize - 1]++;
+      advancePath();
       return result;
     }
 
@@ -1279,26 +1779,24 @@ public class GsonReader implements JsonReader{
       try {
         result = Integer.parseInt(peekedString);
         peeked = PEEKED_NONE;
-        pathIndices[stackSize - 1]++;
+        advancePath();
         return result;
       } catch (NumberFormatException ignored) {
         // Fall back to parse as a double below.
       }
     } else {
-      throw new IllegalStateException("Expected an int but was " + peek()
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new IllegalStateException("Expected an int but was " + peek() + location());
     }
 
     peeked = PEEKED_BUFFERED;
     double asDouble = Double.parseDouble(peekedString); // don't catch this NumberFormatException.
     result = (int) asDouble;
     if (result != asDouble) { // Make sure no precision was lost casting to 'int'.
-      throw new NumberFormatException("Expected an int but was " + peekedString
-          + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+      throw new NumberFormatException("Expected an int but was " + peekedString + location());
     }
     peekedString = null;
     peeked = PEEKED_NONE;
-    pathIndices[stackSize - 1]++;
+    advancePath();
     return result;
   }
 
@@ -1307,10 +1805,69 @@ public class GsonReader implements JsonReader{
    */
   @Override
   public void close(){
+    final JsonMetrics metrics = this.metrics;
+    if (metrics != null) {
+      this.metrics = null;
+      metrics.documentRead(
+        tokenCount, getOffset(), refillCount, escapeCount, maxDepth, System.nanoTime() - metricsStart
+      );
+    }
     peeked = PEEKED_NONE;
     stack[0] = JsonScope.CLOSED;
     stackSize = 1;
-    call(in::close);
+    in.close();
+  }
+
+  /**
+   * Prepares this reader to read a new document from {@code in}, keeping the
+   * allocated buffer and stacks as well as the configuration (raw skip, path
+   * tracking, cheap errors, document sequence and limits). Metrics must be set
+   * again for each document. The previous {@link Reader} is not closed.
+   */
+  public void reset(Reader in) {
+    reset(JsonSource.of(in));
+  }
+
+  public void reset(CharSequence in) {
+    reset(JsonSource.of(in));
+  }
+
+  public void reset(InputStream in) {
+    reset(JsonSource.of(in));
+  }
+
+  public void reset(ByteBuffer in) {
+    reset(JsonSource.of(in));
+  }
+
+  private void reset(JsonSource in) {
+    assert in != null;
+    this.in = in;
+    pos = 0;
+    limit = 0;
+    bufferOffset = 0;
+    bufferedLimit = 0;
+    documentStart = 0;
+    lineNumber = 0;
+    lineStart = 0;
+    peeked = PEEKED_NONE;
+    peekedString = null;
+    capture = null;
+    captureStart = 0;
+    // A failed document may have left names and counts beyond the current stack size.
+    Arrays.fill(pathNames, null);
+    Arrays.fill(pathIndices, 0);
+    if (memberCounts != null) {
+      Arrays.fill(memberCounts, 0);
+    }
+    stack[0] = JsonScope.EMPTY_DOCUMENT;
+    stackSize = 1;
+    metrics = null;
+    counting = false;
+    tokenCount = 0;
+    refillCount = 0;
+    escapeCount = 0;
+    maxDepth = 0;
   }
 
   /**
@@ -1319,6 +1876,18 @@ public class GsonReader implements JsonReader{
    * stream contains unrecognized or unhandled values.
    */
   void skipValue() {
+    if (rawSkip) {
+      int p = peeked;
+      if (p == PEEKED_NONE) {
+        p = doPeek();
+      }
+      if (p == PEEKED_BEGIN_ARRAY || p == PEEKED_BEGIN_OBJECT) {
+        skipStructureRaw();
+        peeked = PEEKED_NONE;
+        skippedPath();
+        return;
+      }
+    }
     int count = 0;
     do {
       int p = peeked;
@@ -1350,11 +1919,266 @@ public class GsonReader implements JsonReader{
       peeked = PEEKED_NONE;
     } while (count != 0);
 
-    pathIndices[stackSize - 1]++;
-    pathNames[stackSize - 1] = "null";
+    skippedPath();
+  }
+
+  /**
+   * Consumes the next value and returns its exact source text, for example to
+   * forward a nested object without decoding and re-encoding it. The text can
+   * be written with {@link GsonWriter#jsonValue(String)}.
+   */
+  public String readRawValue() {
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+    switch (p) {
+    case PEEKED_BEGIN_OBJECT:
+    case PEEKED_BEGIN_ARRAY:
+    case PEEKED_SINGLE_QUOTED:
+    case PEEKED_DOUBLE_QUOTED:
+    case PEEKED_TRUE:
+    case PEEKED_FALSE:
+    case PEEKED_NULL:
+    case PEEKED_LONG:
+    case PEEKED_NUMBER:
+    case PEEKED_UNQUOTED:
+      break;
+    case PEEKED_BUFFERED: {
+      // The source text has already been consumed by a failed numeric read.
+      final StringWriter out = new StringWriter();
+      final GsonWriter writer = new GsonWriter(out);
+      writer.writeString(peekedString);
+      writer.flush();
+      skipValue();
+      return out.toString();
+    }
+    default:
+      throw new IllegalStateException("Expected a value but was " + peek() + location());
+    }
+    final int start = (int) (peekedStart - bufferOffset);
+    assert start >= 0 && start <= pos;
+    capture = new StringBuilder();
+    captureStart = start;
+    try {
+      skipValue();
+      capture.append(buffer, captureStart, pos - captureStart);
+      // In lenient mode, an empty literal in an array is read as null.
+      return capture.length() == 0 ? "null" : capture.toString();
+    } finally {
+      capture = null;
+    }
+  }
+
+  /**
+   * Consumes the next value and returns its {@link StructuralHash}, without
+   * materializing it as a tree.
+   */
+  public long readHash() {
+    switch (peek()) {
+    case BEGIN_ARRAY: {
+      readArrayStart();
+      long hash = StructuralHash.arrayStart();
+      int size = 0;
+      while (hasNext()) {
+        hash = StructuralHash.element(hash, readHash());
+        size++;
+      }
+      readArrayEnd();
+      return StructuralHash.ofArray(hash, size);
+    }
+    case BEGIN_OBJECT: {
+      readObjectStart();
+      long hash = 0;
+      int size = 0;
+      while (hasNext()) {
+        String name = readName();
+        hash = StructuralHash.member(hash, name, readHash());
+        size++;
+      }
+      readObjectEnd();
+      return StructuralHash.ofObject(hash, size);
+    }
+    case STRING:
+      return StructuralHash.ofString(readStringRaw());
+    case NUMBER:
+      if (peeked == PEEKED_LONG) {
+        peeked = PEEKED_NONE;
+        advancePath();
+        return StructuralHash.ofNumber(peekedLong);
+      }
+      return StructuralHash.ofNumber(readNumberRaw());
+    case BOOLEAN:
+      return StructuralHash.ofBoolean(readBooleanRaw());
+    case NULL:
+      readNullRaw();
+      return StructuralHash.ofNull();
+    default:
+      throw new IllegalStateException("Expected a value but was " + peek() + location());
+    }
+  }
+
+  /**
+   * Reads the next value, passing only the values selected by {@code projection}
+   * to {@code consumer} together with their path. Everything else is skipped
+   * without being materialized. Names in the reported paths use the bracket
+   * notation where the dot notation would be ambiguous, see {@link
+   * JsonProjection}.
+   */
+  public void readProjected(JsonProjection projection, BiConsumer<String, JsonNode> consumer) {
+    projection.read(this, consumer);
+  }
+
+  /**
+   * Checks that the remaining input is exactly one well-formed JSON value.
+   * Arrays and objects are fully validated, even if raw skipping is enabled.
+   * Invalid input is reported as a result instead of being thrown; if cheap
+   * errors are enabled, the exception carries only an error code and an
+   * offset. The check runs the regular parser, which still creates the
+   * exception internally, so cheap errors should be enabled when much of the
+   * input is expected to be invalid. The reader cannot be used any more after
+   * an error.
+   *
+   * @return the problem found, or empty if the input is valid.
+   */
+  public Opt<MalformedJsonException> validate() {
+    final boolean wasRawSkip = rawSkip;
+    rawSkip = false;
+    try {
+      skipValue();
+      if (doPeek() != PEEKED_EOF) {
+        throw syntaxError(JsonError.UNEXPECTED_VALUE);
+      }
+      return Opt.empty();
+    } catch (MalformedJsonException e) {
+      return Opt.of(e);
+    } finally {
+      rawSkip = wasRawSkip;
+    }
+  }
+
+  /**
+   * Skips the remainder of an array or object whose opening bracket has
+   * already been consumed. Only brackets, strings and (in lenient mode)
+   * comments are recognized; everything else is passed over unclassified.
+   */
+  private void skipStructureRaw() {
+    // Like nextNonWhitespace, this uses locals 'p' and 'l' to save inner-loop field access.
+    char[] buffer = this.buffer;
+    int depth = 1;
+    final int depthLimit = limits == null ? Integer.MAX_VALUE : limits.maxDepth() - (stackSize - 1);
+    if (depthLimit < 1) {
+      throw syntaxError(JsonError.DEPTH_LIMIT);
+    }
+    int p = pos;
+    int l = limit;
+    while (true) {
+      if (p == l) {
+        pos = p;
+        if (!fillBuffer(1)) {
+          throw syntaxError(JsonError.UNTERMINATED_VALUE);
+        }
+        p = pos;
+        l = limit;
+      }
+      char c = buffer[p++];
+      switch (c) {
+      case '[':
+      case '{':
+        if (++depth > depthLimit) {
+          pos = p;
+          throw syntaxError(JsonError.DEPTH_LIMIT);
+        }
+        break;
+      case ']':
+      case '}':
+        if (--depth == 0) {
+          pos = p;
+          return;
+        }
+        break;
+      case '\n':
+        lineNumber++;
+        lineStart = p;
+        break;
+      case '\'':
+      case '"':
+        if (c == '"' || lenient) {
+          pos = p;
+          skipQuotedValueRaw(c);
+          p = pos;
+          l = limit;
+        }
+        break;
+      case '/':
+      case '#':
+        if (lenient) {
+          pos = p - 1;
+          // Skips any comments. A '/' that starts no comment is returned and consumed.
+          if (nextNonWhitespace(true) != '/') {
+            pos--;
+          }
+          p = pos;
+          l = limit;
+        }
+        break;
+      default:
+        break;
+      }
+    }
+  }
+
+  /**
+   * Like {@link #skipQuotedValue(char)}, but steps over escape sequences
+   * without decoding them.
+   */
+  private void skipQuotedValueRaw(char quote) {
+    char[] buffer = this.buffer;
+    int p = pos;
+    int l = limit;
+    while (true) {
+      while (p < l) {
+        char c = buffer[p++];
+        if (c == quote) {
+          pos = p;
+          return;
+        } else if (c == '\\') {
+          if (p == l) {
+            pos = p;
+            if (!fillBuffer(1)) {
+              throw syntaxError(JsonError.UNTERMINATED_ESCAPE);
+            }
+            p = pos;
+            l = limit;
+          }
+          if (buffer[p] == '\n') {
+            lineNumber++;
+            lineStart = p + 1;
+          }
+          p++;
+        } else if (c == '\n') {
+          lineNumber++;
+          lineStart = p;
+        }
+      }
+      pos = p;
+      if (!fillBuffer(1)) {
+        throw syntaxError(JsonError.UNTERMINATED_STRING);
+      }
+      p = pos;
+      l = limit;
+    }
   }
 
   private void push(int newTop) {
+    if (limits != null) {
+      if (stackSize > limits.maxDepth()) {
+        throw syntaxError(JsonError.DEPTH_LIMIT);
+      }
+      if (memberCounts != null && stackSize < memberCounts.length) {
+        memberCounts[stackSize] = 0;
+      }
+    }
     if (stackSize == stack.length) {
       int[] newStack = new int[stackSize * 2];
       int[] newPathIndices = new int[stackSize * 2];
@@ -1367,6 +2191,44 @@ public class GsonReader implements JsonReader{
       pathNames = newPathNames;
     }
     stack[stackSize++] = newTop;
+    if (counting && stackSize - 1 > maxDepth) {
+      maxDepth = stackSize - 1;
+    }
+  }
+
+  private void countMember() {
+    if (memberCounts == null || memberCounts.length < stackSize) {
+      final int[] newCounts = new int[stack.length];
+      if (memberCounts != null) {
+        System.arraycopy(memberCounts, 0, newCounts, 0, memberCounts.length);
+      }
+      memberCounts = newCounts;
+    }
+    if (++memberCounts[stackSize - 1] > limits.maxMembers()) {
+      throw syntaxError(JsonError.MEMBER_LIMIT);
+    }
+  }
+
+  private void checkStringLength(int length) {
+    if (length > limits.maxStringLength()) {
+      throw syntaxError(JsonError.STRING_LIMIT);
+    }
+  }
+
+  /**
+   * Advances the index of the current array after a value has been consumed.
+   */
+  private void advancePath() {
+    if (trackPath) {
+      pathIndices[stackSize - 1]++;
+    }
+  }
+
+  private void skippedPath() {
+    if (trackPath) {
+      pathIndices[stackSize - 1]++;
+      pathNames[stackSize - 1] = "null";
+    }
   }
 
   /**
@@ -1375,7 +2237,15 @@ public class GsonReader implements JsonReader{
    * false.
    */
   private boolean fillBuffer(int minimum) {
+    if (limit < bufferedLimit) {
+      throw syntaxError(JsonError.DOCUMENT_LIMIT);
+    }
     char[] buffer = this.buffer;
+    if (capture != null) {
+      capture.append(buffer, captureStart, pos - captureStart);
+      captureStart = 0;
+    }
+    bufferOffset += pos;
     lineStart -= pos;
     if (limit != pos) {
       limit -= pos;
@@ -1383,10 +2253,14 @@ public class GsonReader implements JsonReader{
     } else {
       limit = 0;
     }
+    bufferedLimit = limit;
 
     pos = 0;
+    if (counting) {
+      refillCount++;
+    }
     int total;
-    while ((total = call(()->in.read(buffer, limit, buffer.length - limit))) != -1) {
+    while ((total = in.read(buffer, limit, buffer.length - limit)) != -1) {
       limit += total;
 
       // if this is the first read, consume an optional byte order mark (BOM) if it exists
@@ -1396,13 +2270,31 @@ public class GsonReader implements JsonReader{
         minimum++;
       }
 
+      limitDocument();
       if (limit >= minimum) {
         return true;
       }
+      if (limit < bufferedLimit) {
+        throw syntaxError(JsonError.DOCUMENT_LIMIT);
+      }
     }
     return false;
   }
 
+  /**
+   * Hides the buffered data that would exceed the maximum document size, so
+   * that the reader fails as soon as it needs it.
+   */
+  private void limitDocument() {
+    bufferedLimit = limit;
+    if (limits != null) {
+      final long excess = bufferOffset + limit - documentStart - limits.maxDocumentSize();
+      if (excess > 0) {
+        limit -= (int) excess;
+      }
+    }
+  }
+
   int getLineNumber() {
     return lineNumber + 1;
   }
@@ -1411,6 +2303,38 @@ public class GsonReader implements JsonReader{
     return pos - lineStart + 1;
   }
 
+  /**
+   * Returns the number of characters consumed so far.
+   */
+  long getOffset() {
+    return bufferOffset + pos;
+  }
+
+  /**
+   * Starts or stops maintaining the token and depth counters without
+   * reporting them to metrics. Used for JFR events.
+   */
+  void setCounting(boolean counting) {
+    this.counting = counting || metrics != null;
+  }
+
+  long getTokenCount() {
+    return tokenCount;
+  }
+
+  int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Describes the current location for messages: line and column, followed by
+   * the path or, if the path is not tracked, by the character offset.
+   */
+  private String location() {
+    return " at line " + getLineNumber() + " column " + getColumnNumber()
+        + (trackPath ? " path " + getPath() : " offset " + getOffset());
+  }
+
   /**
    * Returns the next character in the stream that is neither whitespace nor a
    * part of a comment. When this returns, the returned character is always at
@@ -1466,7 +2390,7 @@ public class GsonReader implements JsonReader{
           // skip a /* c-style comment */
           pos++;
           if (!skipTo("*/")) {
-            throw syntaxError("Unterminated comment");
+            throw syntaxError(JsonError.UNTERMINATED_COMMENT);
           }
           p = pos + 2;
           l = limit;
@@ -1500,8 +2424,7 @@ public class GsonReader implements JsonReader{
       }
     }
     if (throwOnEof) {
-      throw new MalformedJsonException("End of input"
-          + " at line " + getLineNumber() + " column " + getColumnNumber());
+      throw syntaxError(JsonError.END_OF_INPUT);
     } else {
       return -1;
     }
@@ -1509,7 +2432,7 @@ public class GsonReader implements JsonReader{
 
   private void checkLenient() {
     if (!lenient) {
-      throw syntaxError("Use JsonReader.setLenient(true) to accept malformed JSON");
+      throw syntaxError(JsonError.NOT_LENIENT);
     }
   }
 
@@ -1560,7 +2483,8 @@ public class GsonReader implements JsonReader{
 
   /**
    * Returns a <a href="http://goessner.net/articles/JsonPath/">JsonPath</a> to
-   * the current location in the JSON value.
+   * the current location in the JSON value. If path tracking is disabled,
+   * unknown names and indices are reported as {@code ?}.
    */
   @SuppressWarnings("incomplete-switch")
   String getPath() {
@@ -1569,14 +2493,22 @@ public class GsonReader implements JsonReader{
       switch (stack[i]) {
         case JsonScope.EMPTY_ARRAY:
         case JsonScope.NONEMPTY_ARRAY:
-          result.append('[').append(pathIndices[i]).append(']');
+          result.append('[');
+          if (trackPath) {
+            result.append(pathIndices[i]);
+          } else {
+            result.append('?');
+          }
+          result.append(']');
           break;
 
         case JsonScope.EMPTY_OBJECT:
         case JsonScope.DANGLING_NAME:
         case JsonScope.NONEMPTY_OBJECT:
           result.append('.');
-          if (pathNames[i] != null) {
+          if (!trackPath) {
+            result.append('?');
+          } else if (pathNames[i] != null) {
             result.append(pathNames[i]);
           }
           break;
@@ -1596,19 +2528,22 @@ public class GsonReader implements JsonReader{
    * been read. This supports both unicode escapes "u000A" and two-character
    * escapes "\n".
    *
-   * @throws NumberFormatException if any unicode escape sequences are
+   * @throws MalformedJsonException if any unicode escape sequences are
    *     malformed.
    */
   private char readEscapeCharacter() {
     if (pos == limit && !fillBuffer(1)) {
-      throw syntaxError("Unterminated escape sequence");
+      throw syntaxError(JsonError.UNTERMINATED_ESCAPE);
     }
 
+    if (counting) {
+      escapeCount++;
+    }
     char escaped = buffer[pos++];
     switch (escaped) {
     case 'u':
       if (pos + 4 > limit && !fillBuffer(4)) {
-        throw syntaxError("Unterminated escape sequence");
+        throw syntaxError(JsonError.UNTERMINATED_ESCAPE);
       }
       // Equivalent to Integer.parseInt(stringPool.get(buffer, pos, 4), 16);
       char result = 0;
@@ -1622,7 +2557,7 @@ public class GsonReader implements JsonReader{
         } else if (c >= 'A' && c <= 'F') {
           result += (c - 'A' + 10);
         } else {
-          throw new NumberFormatException("\\u" + new String(buffer, pos, 4));
+          throw syntaxError(JsonError.MALFORMED_ESCAPE, ": \\u" + new String(buffer, pos, 4));
         }
       }
       pos += 4;
@@ -1660,9 +2595,20 @@ public class GsonReader implements JsonReader{
    * Throws a new MalformedJsonException with the given message and a context snippet
    * with this reader's content.
    */
-  private MalformedJsonException syntaxError(String message) {
-    throw new MalformedJsonException(message
-        + " at line " + getLineNumber() + " column " + getColumnNumber() + " path " + getPath());
+  private MalformedJsonException syntaxError(JsonError error) {
+    throw syntaxError(error, "");
+  }
+
+  /**
+   * In cheap error mode, the detail is dropped and the message is left to
+   * {@link MalformedJsonException#getMessage()}.
+   */
+  private MalformedJsonException syntaxError(JsonError error, String detail) {
+    if (cheapErrors) {
+      throw new MalformedJsonException(error, getOffset(), null, false);
+    } else {
+      throw new MalformedJsonException(error, getOffset(), error.message() + detail + location(), true);
+    }
   }
 
   /**
@@ -1694,6 +2640,32 @@ public class GsonReader implements JsonReader{
 
   @Override
   public JsonNode readNode() {
+    if (!JsonEvents.readEnabled()) {
+      return readNodeUncounted();
+    }
+    final JsonReadEvent event = new JsonReadEvent();
+    final boolean wasCounting = counting;
+    final long tokens = tokenCount;
+    final long offset = getOffset();
+    final int depth = stackSize - 1;
+    final int outerMaxDepth = maxDepth;
+    counting = true;
+    maxDepth = depth;
+    event.begin();
+    try {
+      return readNodeUncounted();
+    } finally {
+      event.end();
+      event.chars = getOffset() - offset;
+      event.tokens = tokenCount - tokens;
+      event.depth = maxDepth - depth;
+      event.commit();
+      maxDepth = Math.max(maxDepth, outerMaxDepth);
+      counting = wasCounting;
+    }
+  }
+
+  private JsonNode readNodeUncounted() {
       switch (peek()) {
       case BEGIN_ARRAY:
         readArrayStart();
@@ -1751,23 +2723,23 @@ public class GsonReader implements JsonReader{
   private final class It implements Iterator<JsonNode> {
     @Override
     public boolean hasNext() {
-        return hasNext();
+        return GsonReader.this.hasNext();
     }
     @Override
     public JsonNode next() {
-        return readNode();
+        return readNodeUncounted();
     }
   }
 
   private final class Itm implements Iterator<Pair<String,JsonNode>> {
     @Override
     public boolean hasNext() {
-        return hasNext();
+        return GsonReader.this.hasNext();
     }
     @Override
     public Pair<String,JsonNode> next() {
         final String key = readName();
-        final JsonNode value = readNode();
+        final JsonNode value = readNodeUncounted();
         return pair(key, value);
     }
   }
@@ -24,11 +24,16 @@ import static com.github.gv2011.gsoncore.JsonScope.EMPTY_OBJECT;
 import static com.github.gv2011.gsoncore.JsonScope.NONEMPTY_ARRAY;
 import static com.github.gv2011.gsoncore.JsonScope.NONEMPTY_DOCUMENT;
 import static com.github.gv2011.gsoncore.JsonScope.NONEMPTY_OBJECT;
-import static com.github.gv2011.util.ex.Exceptions.call;
 
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.PrimitiveIterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
 
 import com.github.gv2011.util.AutoCloseableNt;
 import com.github.gv2011.util.json.JsonWriter;
@@ -169,7 +174,17 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
   }
 
   /** The output data, containing at most one top-level array or object. */
-  private final Writer out;
+  private JsonSink out;
+
+  /**
+   * Output is collected here and passed to {@code out} when the buffer is full
+   * or on flush, so that writing a token is a plain array store.
+   */
+  private final char[] buffer = new char[2048];
+  private int count = 0;
+
+  /** The significant digits of a double being formatted. */
+  private final char[] doubleDigits = new char[32];
 
   private int[] stack = new int[32];
   private int stackSize = 0;
@@ -196,11 +211,31 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
 
   private boolean serializeNulls = false;
 
+  /** Receives the counters below on close, may be null. */
+  private JsonMetrics metrics;
+  private long metricsStart;
+  /** The JFR event of the output since the last flush, null before the first token or if not enabled. */
+  private JsonWriteEvent event;
+  /** True if the event is to begin with the next token. */
+  private boolean eventPending;
+  private long eventTokens;
+  private long eventChars;
+  private int eventDepth;
+  /** True while the counters below are maintained, for metrics or a JFR event. */
+  private boolean counting;
+  private long tokenCount;
+  private long charCount;
+  private long escapeCount;
+  private int maxDepth;
+
   
   /**
    * Creates a new instance that writes a JSON-encoded stream to {@code out}.
-   * For best performance, ensure {@link Writer} is buffered; wrapping in
-   * {@link java.io.BufferedWriter BufferedWriter} if necessary.
+   * Output is buffered internally and passed to {@code out} in chunks, so
+   * wrapping it in a {@link java.io.BufferedWriter BufferedWriter} is not
+   * necessary. The buffer is passed on whenever a top-level value is
+   * complete and on {@link #flush()} and {@link #close()}. Until then, {@code
+   * out} may only hold part of the value.
    */
   public GsonWriter(Writer out) {
     this(out, DEFAULT_INDENT, false, false, false);
@@ -212,6 +247,10 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
 
   
   GsonWriter(Writer out, String indent, boolean lenient, boolean htmlSafe, boolean serializeNulls) {
+    this(JsonSink.of(out), indent, lenient, htmlSafe, serializeNulls);
+  }
+
+  GsonWriter(JsonSink out, String indent, boolean lenient, boolean htmlSafe, boolean serializeNulls) {
     assert out != null;
     this.out = out;
     if (indent.length() == 0) {
@@ -224,6 +263,7 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
     this.lenient = lenient;
     this.htmlSafe = htmlSafe;
     this.serializeNulls = serializeNulls;
+    armEvent();
   }
 
   /**
@@ -249,6 +289,23 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
     return serializeNulls;
   }
 
+  /**
+   * Starts counting tokens, characters, escapes and nesting depth. The
+   * counters and the elapsed time are passed to {@code metrics} when this
+   * writer is closed. Without metrics, nothing is counted.
+   */
+  public final void setMetrics(JsonMetrics metrics) {
+    this.metrics = metrics;
+    counting = metrics != null || eventPending || event != null;
+    tokenCount = 0;
+    charCount = 0;
+    escapeCount = 0;
+    maxDepth = 0;
+    eventTokens = 0;
+    eventChars = 0;
+    metricsStart = metrics == null ? 0 : System.nanoTime();
+  }
+
   /**
    * Begins encoding a new array. Each call to this method must be paired with
    * a call to {@link #endArray}.
@@ -300,7 +357,7 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
   private void open(int empty, String openBracket){
     beforeValue();
     push(empty);
-    call(()->out.write(openBracket));
+    write(openBracket);
   }
 
   /**
@@ -320,10 +377,28 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
     if (context == nonempty) {
       newline();
     }
-    call(()->out.write(closeBracket));
+    if (counting) {
+      if (eventPending) {
+        beginEvent();
+      }
+      tokenCount++;
+    }
+    write(closeBracket);
+    endValue();
     return this;
   }
 
+  /**
+   * Passes the buffered output on to the underlying writer when a top-level
+   * value is complete, so that the writer holds every complete document even
+   * if this writer is neither flushed nor closed.
+   */
+  private void endValue(){
+    if (stackSize == 1) {
+      flushBuffer();
+    }
+  }
+
   private void push(int newTop) {
     if (stackSize == stack.length) {
       int[] newStack = new int[stackSize * 2];
@@ -331,6 +406,15 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
       stack = newStack;
     }
     stack[stackSize++] = newTop;
+    if (counting) {
+      final int depth = stackSize - 1;
+      if (depth > maxDepth) {
+        maxDepth = depth;
+      }
+      if (depth > eventDepth) {
+        eventDepth = depth;
+      }
+    }
   }
 
   /**
@@ -390,23 +474,25 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
     writeDeferredName();
     beforeValue();
     string(value);
+    endValue();
   }
 
   /**
    * Writes {@code value} directly to the writer without quoting or
-   * escaping.
+   * escaping. The value must be a complete, well-formed JSON value, for
+   * example one obtained from {@link GsonReader#readRawValue()}.
    *
-   * @param value the literal string value, or null to encode a null literal.
-   * @return this writer.
+   * @param value the pre-serialized JSON value, or null to encode a null literal.
    */
-  void jsonValue(String value) throws IOException {
+  public void jsonValue(String value) {
     if (value == null) {
       nullValue();
     }
     else{
       writeDeferredName();
       beforeValue();
-      out.append(value);
+      write(value);
+      endValue();
     }
   }
 
@@ -419,14 +505,15 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
       if (serializeNulls) {
         writeDeferredName();
         beforeValue();
-        call(()->out.write("null"));
+        write("null");
       } else {
         deferredName = null;
       }
     }
     else{
       beforeValue();
-      call(()->out.write("null"));
+      write("null");
+      endValue();
     }
   }
 
@@ -434,7 +521,8 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
   public void writeBoolean(boolean value){
     writeDeferredName();
     beforeValue();
-    call(()->out.write(Boolean.toString(value)));
+    write(Boolean.toString(value));
+    endValue();
   }
 
   @Override
@@ -442,7 +530,302 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
     assert value!=null;
     writeDeferredName();
     beforeValue();
-    call(()->out.append(value.toEcmaString()));
+    write(value.toEcmaString());
+    endValue();
+  }
+
+  @Override
+  public void writeLong(long value){
+    writeDeferredName();
+    beforeValue();
+    digits(value);
+    endValue();
+  }
+
+  @Override
+  public void writeInt(int value){
+    writeLong(value);
+  }
+
+  /**
+   * Writes {@code values} as an array. The separator and indentation between
+   * the elements are computed once for the whole array and the digits are
+   * formatted directly into the output buffer.
+   */
+  public void writeArray(long[] values){
+    beginArray();
+    final String next = elementSeparator();
+    for (int i = 0; i < values.length; i++) {
+      write(next, i == 0 ? 1 : 0, next.length() - (i == 0 ? 1 : 0));
+      digits(values[i]);
+    }
+    endElements(values.length);
+  }
+
+  /**
+   * Like {@link #writeArray(long[])}.
+   */
+  public void writeArray(int[] values){
+    beginArray();
+    final String next = elementSeparator();
+    for (int i = 0; i < values.length; i++) {
+      write(next, i == 0 ? 1 : 0, next.length() - (i == 0 ? 1 : 0));
+      digits(values[i]);
+    }
+    endElements(values.length);
+  }
+
+  /**
+   * Writes {@code values} as an array of numbers in ECMAScript notation, like
+   * {@link Decimal#toEcmaString()}. NaN and infinite values are written as
+   * {@code NaN}, {@code Infinity} and {@code -Infinity} if this writer is
+   * lenient, as a lenient {@link GsonReader} accepts them.
+   *
+   * @throws IllegalArgumentException if a value is NaN or infinite and this
+   *     writer is not lenient.
+   */
+  public void writeArray(double[] values){
+    beginArray();
+    final String next = elementSeparator();
+    for (int i = 0; i < values.length; i++) {
+      write(next, i == 0 ? 1 : 0, next.length() - (i == 0 ? 1 : 0));
+      digits(values[i]);
+    }
+    endElements(values.length);
+  }
+
+  /**
+   * Like {@link #writeArray(long[])}, for the elements of {@code values} in
+   * encounter order. The stream is consumed.
+   */
+  public void writeArray(LongStream values){
+    beginArray();
+    final String next = elementSeparator();
+    final PrimitiveIterator.OfLong it = values.iterator();
+    int n = 0;
+    while (it.hasNext()) {
+      write(next, n == 0 ? 1 : 0, next.length() - (n == 0 ? 1 : 0));
+      digits(it.nextLong());
+      n++;
+    }
+    endElements(n);
+  }
+
+  /**
+   * Like {@link #writeArray(double[])}, for the elements of {@code values} in
+   * encounter order. The stream is consumed.
+   */
+  public void writeArray(DoubleStream values){
+    beginArray();
+    final String next = elementSeparator();
+    final PrimitiveIterator.OfDouble it = values.iterator();
+    int n = 0;
+    while (it.hasNext()) {
+      write(next, n == 0 ? 1 : 0, next.length() - (n == 0 ? 1 : 0));
+      digits(it.nextDouble());
+      n++;
+    }
+    endElements(n);
+  }
+
+  /**
+   * Returns what precedes an element of the array just begun, except the
+   * first: the comma followed by the newline and indentation, if any. The
+   * first element is preceded by the same without the comma.
+   */
+  private String elementSeparator(){
+    if (indent == null) {
+      return ",";
+    }
+    final StringBuilder result = new StringBuilder(1 + (stackSize - 1) * indent.length() + 1).append(",\n");
+    for (int i = 1; i < stackSize; i++) {
+      result.append(indent);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Completes an array whose {@code n} elements have been written directly.
+   */
+  private void endElements(int n){
+    if (n > 0) {
+      replaceTop(NONEMPTY_ARRAY);
+      if (counting) {
+        tokenCount += n;
+      }
+    }
+    endArray();
+  }
+
+  private void digits(long value){
+    if (value == Long.MIN_VALUE) {
+      write("-9223372036854775808");
+      return;
+    }
+    if (count > buffer.length - 20) {
+      flushBuffer();
+    }
+    final char[] buffer = this.buffer;
+    int pos = count;
+    if (value < 0) {
+      buffer[pos++] = '-';
+      value = -value;
+    }
+    int length = 1;
+    for (long limit = 10; length < 19 && value >= limit; limit *= 10) {
+      length++;
+    }
+    final int end = pos + length;
+    int i = end;
+    do {
+      buffer[--i] = (char) ('0' + (int) (value % 10));
+      value /= 10;
+    } while (value != 0);
+    if (counting) {
+      charCount += end - count;
+    }
+    count = end;
+  }
+
+  /**
+   * Writes {@code value} in the notation of ECMAScript's Number.prototype.toString.
+   * The digits of {@link Double#toString(double)} are used where they are
+   * certainly the right ones: at most one decimal of up to 15 significant
+   * digits rounds to a normal double, so such a result is the shortest and
+   * closest one on every Java version. Longer results, which are not always
+   * the shortest before Java 19, and subnormals are computed by {@link
+   * #shortest(double)} instead.
+   */
+  private void digits(double value){
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      if (!lenient) {
+        throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+      }
+      write(Double.toString(value));
+      return;
+    }
+    if (value == (long) value && Math.abs(value) <= 0x1p53) {
+      // Exact integers, whose digits are also the shortest ones. Includes -0.0, which is "0" in ECMAScript.
+      digits((long) value);
+      return;
+    }
+    final double magnitude = Math.abs(value);
+    final String s = Double.toString(magnitude);
+    final int exponentStart = s.indexOf('E');
+    final int end = exponentStart == -1 ? s.length() : exponentStart;
+    // magnitude = 0.d[0]d[1]...d[k-1] * 10^n
+    final char[] d = this.doubleDigits;
+    int k = 0;
+    int point = -1;
+    for (int i = 0; i < end; i++) {
+      final char c = s.charAt(i);
+      if (c == '.') {
+        point = k;
+      } else {
+        d[k++] = c;
+      }
+    }
+    int n = (point == -1 ? k : point)
+      + (exponentStart == -1 ? 0 : Integer.parseInt(s.substring(exponentStart + 1)));
+    int leadingZeros = 0;
+    while (leadingZeros < k - 1 && d[leadingZeros] == '0') {
+      leadingZeros++;
+    }
+    if (leadingZeros > 0) {
+      System.arraycopy(d, leadingZeros, d, 0, k - leadingZeros);
+      k -= leadingZeros;
+      n -= leadingZeros;
+    }
+    while (k > 1 && d[k - 1] == '0') {
+      k--;
+    }
+    if (k > 15 || magnitude < Double.MIN_NORMAL) {
+      final BigDecimal shortest = shortest(magnitude);
+      final String digits = shortest.unscaledValue().toString();
+      k = digits.length();
+      digits.getChars(0, k, d, 0);
+      n = k - shortest.scale();
+    }
+    if (count > buffer.length - 32) {
+      flushBuffer();
+    }
+    final char[] buffer = this.buffer;
+    int pos = count;
+    if (value < 0) {
+      buffer[pos++] = '-';
+    }
+    if (k <= n && n <= 21) {
+      System.arraycopy(d, 0, buffer, pos, k);
+      pos += k;
+      for (int i = k; i < n; i++) {
+        buffer[pos++] = '0';
+      }
+    } else if (0 < n && n <= 21) {
+      System.arraycopy(d, 0, buffer, pos, n);
+      pos += n;
+      buffer[pos++] = '.';
+      System.arraycopy(d, n, buffer, pos, k - n);
+      pos += k - n;
+    } else if (-6 < n && n <= 0) {
+      buffer[pos++] = '0';
+      buffer[pos++] = '.';
+      for (int i = n; i < 0; i++) {
+        buffer[pos++] = '0';
+      }
+      System.arraycopy(d, 0, buffer, pos, k);
+      pos += k;
+    } else {
+      buffer[pos++] = d[0];
+      if (k > 1) {
+        buffer[pos++] = '.';
+        System.arraycopy(d, 1, buffer, pos, k - 1);
+        pos += k - 1;
+      }
+      buffer[pos++] = 'e';
+      int e = n - 1;
+      if (e < 0) {
+        buffer[pos++] = '-';
+        e = -e;
+      } else {
+        buffer[pos++] = '+';
+      }
+      if (e >= 100) {
+        buffer[pos++] = (char) ('0' + e / 100);
+      }
+      if (e >= 10) {
+        buffer[pos++] = (char) ('0' + e / 10 % 10);
+      }
+      buffer[pos++] = (char) ('0' + e % 10);
+    }
+    if (counting) {
+      charCount += pos - count;
+    }
+    count = pos;
+  }
+
+  /**
+   * Returns the decimal with the fewest significant digits that rounds to
+   * {@code magnitude}, the closest one if there are several, without trailing
+   * zeros. These are the digits ECMAScript requires. The search starts at 15
+   * digits for normal values, because a shorter decimal that rounds to the
+   * value would be the only one of up to 15 digits.
+   */
+  private static BigDecimal shortest(double magnitude){
+    final BigDecimal exact = new BigDecimal(magnitude);
+    for (int precision = magnitude < Double.MIN_NORMAL ? 1 : 15; ; precision++) {
+      final BigDecimal closest = exact.round(new MathContext(precision, RoundingMode.HALF_EVEN));
+      if (closest.doubleValue() == magnitude) {
+        return closest.stripTrailingZeros();
+      }
+      // Below a power of two, the doubles are closer together than above it,
+      // so the neighbour on the other side can still round to the value.
+      final BigDecimal other = exact.round(new MathContext(
+        precision, closest.compareTo(exact) < 0 ? RoundingMode.CEILING : RoundingMode.FLOOR
+      ));
+      if (other.doubleValue() == magnitude) {
+        return other.stripTrailingZeros();
+      }
+    }
   }
 
   /**
@@ -454,7 +837,10 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
     if (stackSize == 0) {
       throw new IllegalStateException("Closed.");
     }
-    call(out::flush);
+    flushBuffer();
+    out.flush();
+    commitEvent();
+    armEvent();
   }
 
   /**
@@ -464,7 +850,15 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
    */
   @Override
   public void close(){
-    call(out::close);
+    flushBuffer();
+    out.close();
+    commitEvent();
+    eventPending = false;
+    final JsonMetrics metrics = this.metrics;
+    if (metrics != null) {
+      this.metrics = null;
+      metrics.documentWritten(tokenCount, charCount, escapeCount, maxDepth, System.nanoTime() - metricsStart);
+    }
 
     int size = stackSize;
     if (size > 1 || size == 1 && stack[size - 1] != NONEMPTY_DOCUMENT) {
@@ -473,50 +867,154 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
     stackSize = 0;
   }
 
+  /**
+   * Prepares this writer to write a new document to {@code out}, keeping the
+   * allocated stack and the configuration. Metrics must be set again for each
+   * document. Output of the previous document that is still buffered, for
+   * example of an unfinished top-level value, is passed on to the previous
+   * {@link Writer} first. That writer is neither flushed nor closed, but a
+   * pending JFR event of the previous document is committed.
+   */
+  public void reset(Writer out) {
+    assert out != null;
+    if (stackSize > 0) {
+      flushBuffer();
+    }
+    commitEvent();
+    this.out = JsonSink.of(out);
+    deferredName = null;
+    stack[0] = EMPTY_DOCUMENT;
+    stackSize = 1;
+    metrics = null;
+    tokenCount = 0;
+    charCount = 0;
+    escapeCount = 0;
+    maxDepth = 0;
+    armEvent();
+  }
+
+  /**
+   * Lets the next token begin a JFR event, if the event is enabled.
+   */
+  private void armEvent() {
+    event = null;
+    eventPending = JsonEvents.writeEnabled();
+    counting = metrics != null || eventPending;
+  }
+
+  /**
+   * Called with the first token after {@link #armEvent()}, before it is counted.
+   */
+  private void beginEvent() {
+    eventPending = false;
+    event = new JsonWriteEvent();
+    event.begin();
+    eventTokens = tokenCount;
+    eventChars = charCount;
+    eventDepth = stackSize - 1;
+  }
+
+  private void commitEvent() {
+    final JsonWriteEvent event = this.event;
+    if (event != null) {
+      this.event = null;
+      event.end();
+      event.chars = charCount - eventChars;
+      event.tokens = tokenCount - eventTokens;
+      event.depth = eventDepth;
+      event.commit();
+    }
+  }
+
   private void string(String value){
-    call(()->{
-      final String[] replacements = htmlSafe ? HTML_SAFE_REPLACEMENT_CHARS : REPLACEMENT_CHARS;
-      out.write("\"");
-      int last = 0;
-      final int length = value.length();
-      for (int i = 0; i < length; i++) {
-        final char c = value.charAt(i);
-        final String replacement;
-        if (c < 128) {
-          replacement = replacements[c];
-          if (replacement == null) {
-            continue;
-          }
-        } else if (c == '\u2028') {
-          replacement = "\\u2028";
-        } else if (c == '\u2029') {
-          replacement = "\\u2029";
-        } else {
+    final String[] replacements = htmlSafe ? HTML_SAFE_REPLACEMENT_CHARS : REPLACEMENT_CHARS;
+    write('"');
+    int last = 0;
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      final String replacement;
+      if (c < 128) {
+        replacement = replacements[c];
+        if (replacement == null) {
           continue;
         }
-        if (last < i) {
-          out.write(value, last, i - last);
-        }
-        out.write(replacement);
-        last = i + 1;
+      } else if (c == '\u2028') {
+        replacement = "\\u2028";
+      } else if (c == '\u2029') {
+        replacement = "\\u2029";
+      } else {
+        continue;
+      }
+      if (last < i) {
+        write(value, last, i - last);
       }
-      if (last < length) {
-        out.write(value, last, length - last);
+      if (counting) {
+        escapeCount++;
       }
-      out.write("\"");
-    });
+      write(replacement);
+      last = i + 1;
+    }
+    if (last < length) {
+      write(value, last, length - last);
+    }
+    write('"');
   }
 
   private void newline(){
     if (indent == null) {
       return;
     }
-    call(()->{
-      out.write("\n");
-      for (int i = 1, size = stackSize; i < size; i++) {
-        out.write(indent);
+    write('\n');
+    for (int i = 1, size = stackSize; i < size; i++) {
+      write(indent);
+    }
+  }
+
+  private void write(String s){
+    write(s, 0, s.length());
+  }
+
+  private void write(String s, int off, int len){
+    if (len > buffer.length - count) {
+      flushBuffer();
+      if (len > buffer.length) {
+        while (len > 0) {
+          final int n = Math.min(len, buffer.length);
+          s.getChars(off, off + n, buffer, 0);
+          out.write(buffer, 0, n);
+          off += n;
+          len -= n;
+          if (counting) {
+            charCount += n;
+          }
+        }
+        return;
       }
-    });
+    }
+    s.getChars(off, off + len, buffer, count);
+    count += len;
+    if (counting) {
+      charCount += len;
+    }
+  }
+
+  private void write(char c){
+    if (count == buffer.length) {
+      flushBuffer();
+    }
+    buffer[count++] = c;
+    if (counting) {
+      charCount++;
+    }
+  }
+
+  private void flushBuffer(){
+    if (count > 0) {
+      final int n = count;
+      count = 0;
+      out.write(buffer, 0, n);
+    }
   }
 
   /**
@@ -525,8 +1023,14 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
    */
   private void beforeName(){
     int context = peek();
+    if (counting) {
+      if (eventPending) {
+        beginEvent();
+      }
+      tokenCount++;
+    }
     if (context == NONEMPTY_OBJECT) { // first in object
-      call(()->out.write(','));
+      write(',');
     } else if (context != EMPTY_OBJECT) { // not in an object!
       throw new IllegalStateException("Nesting problem.");
     }
@@ -541,6 +1045,12 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
    */
   @SuppressWarnings("fallthrough")
   private void beforeValue(){
+    if (counting) {
+      if (eventPending) {
+        beginEvent();
+      }
+      tokenCount++;
+    }
     switch (peek()) {
     case NONEMPTY_DOCUMENT:
       if (!lenient) {
@@ -558,12 +1068,12 @@ public class GsonWriter implements AutoCloseableNt, Flushable, JsonWriter {
       break;
 
     case NONEMPTY_ARRAY: // another in array
-      call(()->out.append(','));
+      write(',');
       newline();
       break;
 
     case DANGLING_NAME: // value for name
-      call(()->out.append(separator));
+      write(separator);
       replaceTop(NONEMPTY_OBJECT);
       break;
 
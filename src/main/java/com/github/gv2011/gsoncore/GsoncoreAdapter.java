@@ -4,10 +4,13 @@ import static com.github.gv2011.util.CollectionUtils.pair;
 import static com.github.gv2011.util.ex.Exceptions.call;
 import static com.github.gv2011.util.ex.Exceptions.callWithCloseable;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.io.StringReader;
 import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 
 import com.github.gv2011.util.Pair;
@@ -28,15 +31,88 @@ public final class GsoncoreAdapter implements Adapter{
     return new GsonWriter(out, compact ? "" : "  ");
   }
 
+  /**
+   * Returns a writer that produces canonical JSON (RFC 8785 style), see {@link CanonicalGsonWriter}.
+   */
+  public JsonWriter newCanonicalJsonWriter(final Writer out) {
+    return new CanonicalGsonWriter(out);
+  }
+
   @Override
   public JsonReader newJsonReader(final JsonFactory jf, final Reader in) {
 	  return new GsonReader(in);
   }
 
+  /**
+   * Returns a writer for the given format. {@code compact} only applies to
+   * {@link JsonFormat#TEXT}.
+   */
+  public JsonWriter newJsonWriter(final OutputStream out, final JsonFormat format, final boolean compact) {
+    switch (format) {
+    case TEXT:
+      return newJsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), compact);
+    case BINARY:
+      return new BinaryJsonWriter(out);
+    case BINARY_SHARED_NAMES:
+      return new BinaryJsonWriter(out, true);
+    default:
+      throw new IllegalArgumentException(format.toString());
+    }
+  }
+
+  /**
+   * Returns a writer for the given format that compresses its output. Closing
+   * the writer finishes the compressed stream and returns the deflater to a
+   * pool.
+   */
+  public JsonWriter newJsonWriter(
+    final OutputStream out, final JsonFormat format, final boolean compact, final JsonCompression compression
+  ) {
+    return newJsonWriter(compression.compress(out), format, compact);
+  }
+
+  /**
+   * Returns a reader for the given format that decompresses its input.
+   * Closing the reader returns the inflater to a pool.
+   */
+  public JsonReader newJsonReader(
+    final JsonFactory jf, final InputStream in, final JsonFormat format, final JsonCompression compression
+  ) {
+    return newJsonReader(jf, compression.decompress(in), format);
+  }
+
+  public JsonReader newJsonReader(final JsonFactory jf, final InputStream in, final JsonFormat format) {
+    switch (format) {
+    case TEXT:
+      return new GsonReader(jf, in);
+    case BINARY:
+    case BINARY_SHARED_NAMES:
+      return new BinaryJsonReader(jf, in);
+    default:
+      throw new IllegalArgumentException(format.toString());
+    }
+  }
+
   @Override
   public JsonNode deserialize(final JsonFactory jf, final String json) {
-    return callWithCloseable(()->new GsonReader(new StringReader(json)),
-    	(ThrowingFunction<GsonReader,JsonNode>)r->deserialize(jf, r)
+    if (!JsonEvents.deserializeEnabled()) {
+      return callWithCloseable(()->new GsonReader(jf, json),
+        (ThrowingFunction<GsonReader,JsonNode>)r->deserialize(jf, r)
+      );
+    }
+    final JsonDeserializeEvent event = new JsonDeserializeEvent();
+    event.begin();
+    return callWithCloseable(()->new GsonReader(jf, json),
+      (ThrowingFunction<GsonReader,JsonNode>)r->{
+        r.setCounting(true);
+        final JsonNode result = deserialize(jf, r);
+        event.end();
+        event.chars = json.length();
+        event.tokens = r.getTokenCount();
+        event.depth = r.getMaxDepth();
+        event.commit();
+        return result;
+      }
     );
   }
 
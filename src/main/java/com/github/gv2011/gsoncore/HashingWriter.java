@@ -0,0 +1,175 @@
+package com.github.gv2011.gsoncore;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.zip.Checksum;
+
+/**
+ * A {@link Writer} decorator that feeds the UTF-8 encoding of everything
+ * written through it into a {@link MessageDigest} or a {@link Checksum}, so
+ * that the hash of a document is available when it has been written, without
+ * a second pass over the output. Typical use:
+ * <pre>   {@code
+ *   HashingWriter hashing = new HashingWriter(out, MessageDigest.getInstance("SHA-256"));
+ *   GsonWriter writer = new GsonWriter(hashing, "");
+ *   ...
+ *   writer.close();
+ *   byte[] hash = hashing.digest();
+ * }</pre>
+ *
+ * <p>Unpaired surrogates are hashed as {@code '?'}, like {@link
+ * java.io.OutputStreamWriter} encodes them. Instances of this class are not
+ * thread safe.
+ */
+public final class HashingWriter extends Writer {
+
+  private final Writer out;
+  private final MessageDigest digest;
+  private final Checksum checksum;
+
+  private final byte[] bytes = new byte[1024];
+  private int byteCount = 0;
+
+  /** A high surrogate whose low surrogate has not been written yet, or 0. */
+  private char pendingHighSurrogate = 0;
+
+  private byte[] result;
+
+  public HashingWriter(final Writer out, final MessageDigest digest) {
+    this(out, digest, null);
+  }
+
+  public HashingWriter(final Writer out, final Checksum checksum) {
+    this(out, null, checksum);
+  }
+
+  private HashingWriter(final Writer out, final MessageDigest digest, final Checksum checksum) {
+    assert out != null;
+    this.out = out;
+    this.digest = digest;
+    this.checksum = checksum;
+  }
+
+  @Override
+  public void write(final int c) throws IOException {
+    out.write(c);
+    encode((char) c);
+    if (byteCount > bytes.length - 4) {
+      update();
+    }
+  }
+
+  @Override
+  public void write(final char[] cbuf, final int off, final int len) throws IOException {
+    out.write(cbuf, off, len);
+    for (int i = off, end = off + len; i < end; i++) {
+      encode(cbuf[i]);
+      if (byteCount > bytes.length - 4) {
+        update();
+      }
+    }
+  }
+
+  @Override
+  public void write(final String str, final int off, final int len) throws IOException {
+    out.write(str, off, len);
+    for (int i = off, end = off + len; i < end; i++) {
+      encode(str.charAt(i));
+      if (byteCount > bytes.length - 4) {
+        update();
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  /**
+   * Closes the underlying writer and completes the hash.
+   */
+  @Override
+  public void close() throws IOException {
+    if (result == null) {
+      if (pendingHighSurrogate != 0) {
+        pendingHighSurrogate = 0;
+        bytes[byteCount++] = '?';
+      }
+      update();
+      result = digest != null ? digest.digest() : new byte[0];
+    }
+    out.close();
+  }
+
+  /**
+   * Returns the digest of everything written. Only available after {@link #close()}.
+   */
+  public byte[] digest() {
+    if (digest == null) {
+      throw new IllegalStateException("No MessageDigest configured.");
+    }
+    return completed().clone();
+  }
+
+  /**
+   * Returns the checksum of everything written. Only available after {@link #close()}.
+   */
+  public long checksum() {
+    if (checksum == null) {
+      throw new IllegalStateException("No Checksum configured.");
+    }
+    completed();
+    return checksum.getValue();
+  }
+
+  private byte[] completed() {
+    if (result == null) {
+      throw new IllegalStateException("Not closed.");
+    }
+    return result;
+  }
+
+  private void encode(final char c) {
+    final byte[] bytes = this.bytes;
+    if (pendingHighSurrogate != 0) {
+      final char high = pendingHighSurrogate;
+      pendingHighSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        final int codePoint = Character.toCodePoint(high, c);
+        bytes[byteCount++] = (byte) (0xf0 | (codePoint >> 18));
+        bytes[byteCount++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        bytes[byteCount++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        bytes[byteCount++] = (byte) (0x80 | (codePoint & 0x3f));
+        return;
+      }
+      bytes[byteCount++] = '?';
+    }
+    if (c < 0x80) {
+      bytes[byteCount++] = (byte) c;
+    } else if (c < 0x800) {
+      bytes[byteCount++] = (byte) (0xc0 | (c >> 6));
+      bytes[byteCount++] = (byte) (0x80 | (c & 0x3f));
+    } else if (Character.isHighSurrogate(c)) {
+      pendingHighSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      bytes[byteCount++] = '?';
+    } else {
+      bytes[byteCount++] = (byte) (0xe0 | (c >> 12));
+      bytes[byteCount++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+      bytes[byteCount++] = (byte) (0x80 | (c & 0x3f));
+    }
+  }
+
+  private void update() {
+    if (byteCount > 0) {
+      if (digest != null) {
+        digest.update(bytes, 0, byteCount);
+      } else {
+        checksum.update(bytes, 0, byteCount);
+      }
+      byteCount = 0;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.github.gv2011.gsoncore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.github.gv2011.util.json.JsonFactory;
+
+/**
+ * Receives UTF-8 encoded JSON as {@link ByteBuffer} chunks, e.g. a request
+ * body, and makes it available to a {@link GsonReader}:
+ * <pre>   {@code
+ *   JsonByteSubscriber body = new JsonByteSubscriber();
+ *   bodyPublisher.subscribe(body);
+ *   JsonPublisher.ofSequence(body.newReader(jf), virtualThreadExecutor).subscribe(...);
+ * }</pre>
+ *
+ * <p>Chunks are requested as the reader consumes them, at most {@code
+ * prefetch} ahead, so memory stays bounded however large the input is. When
+ * the reader needs a chunk that has not arrived yet, it waits for it. Closing
+ * the reader cancels the subscription.
+ */
+public final class JsonByteSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+  public static final int DEFAULT_PREFETCH = 4;
+
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  private final int prefetch;
+  private final LinkedBlockingQueue<ByteBuffer> chunks = new LinkedBlockingQueue<>();
+  private final Input input = new Input();
+  private volatile Flow.Subscription subscription;
+  private volatile Throwable failure;
+  private boolean readerCreated = false;
+
+  public JsonByteSubscriber() {
+    this(DEFAULT_PREFETCH);
+  }
+
+  public JsonByteSubscriber(final int prefetch) {
+    if (prefetch < 1) {
+      throw new IllegalArgumentException("prefetch must be positive.");
+    }
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * Returns a reader for the received bytes. Only one reader can be created.
+   */
+  public synchronized GsonReader newReader(final JsonFactory jf) {
+    if (readerCreated) {
+      throw new IllegalStateException("Reader already created.");
+    }
+    readerCreated = true;
+    return new GsonReader(jf, input);
+  }
+
+  @Override
+  public void onSubscribe(final Flow.Subscription subscription) {
+    if (this.subscription != null) {
+      subscription.cancel();
+      return;
+    }
+    this.subscription = subscription;
+    if (input.closed) {
+      subscription.cancel();
+    } else {
+      subscription.request(prefetch);
+    }
+  }
+
+  @Override
+  public void onNext(final ByteBuffer chunk) {
+    chunks.add(chunk);
+  }
+
+  @Override
+  public void onError(final Throwable e) {
+    failure = e;
+    chunks.add(END);
+  }
+
+  @Override
+  public void onComplete() {
+    chunks.add(END);
+  }
+
+  /**
+   * The received chunks as a stream, read by a single thread.
+   */
+  private final class Input extends InputStream {
+    private ByteBuffer chunk;
+    private volatile boolean closed = false;
+
+    @Override
+    public int read() throws IOException {
+      final byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      if (len == 0) {
+        return 0;
+      }
+      ByteBuffer chunk = this.chunk;
+      while (chunk == null || !chunk.hasRemaining()) {
+        if (chunk == END) {
+          final Throwable e = failure;
+          if (e != null) {
+            throw new IOException(e);
+          }
+          return -1;
+        }
+        if (chunk != null) {
+          subscription.request(1);
+        }
+        try {
+          chunk = this.chunk = chunks.take();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      }
+      final int n = Math.min(len, chunk.remaining());
+      chunk.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        final Flow.Subscription subscription = JsonByteSubscriber.this.subscription;
+        if (subscription != null) {
+          subscription.cancel();
+        }
+        chunks.clear();
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.github.gv2011.gsoncore;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression applied below the {@link JsonFormat} by {@link
+ * GsoncoreAdapter#newJsonReader(com.github.gv2011.util.json.JsonFactory, InputStream, JsonFormat,
+ * JsonCompression)} and {@link GsoncoreAdapter#newJsonWriter(OutputStream, JsonFormat, boolean,
+ * JsonCompression)}. The {@link java.util.zip.Inflater} and {@link
+ * java.util.zip.Deflater} instances are pooled and reused when the reader or
+ * writer is closed.
+ */
+public enum JsonCompression {
+
+  NONE,
+
+  /** The gzip file format (RFC 1952), single member. */
+  GZIP,
+
+  /** The zlib format (RFC 1950), as used by HTTP {@code Content-Encoding: deflate}. */
+  DEFLATE;
+
+  InputStream decompress(final InputStream in) {
+    return this == NONE ? in : new CompressedInputStream(in, this == GZIP);
+  }
+
+  OutputStream compress(final OutputStream out) {
+    return this == NONE ? out : new CompressedOutputStream(out, this == GZIP);
+  }
+}
@@ -0,0 +1,104 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.staticClass;
+
+import java.util.Map;
+
+import com.github.gv2011.util.json.JsonNode;
+
+/**
+ * Writes values read from a {@link GsonReader} or held as {@link JsonNode}s to
+ * a {@link GsonWriter}. Members with a {@code null} value are always written,
+ * independently of {@link GsonWriter#getSerializeNulls()}, because the output
+ * is meant to reproduce the input exactly, e.g. in a patch.
+ */
+final class JsonCopy {
+
+  private JsonCopy(){staticClass();}
+
+  /**
+   * Copies the next value token by token, so that memory does not depend on
+   * its size. Numbers keep their source text.
+   */
+  static void copy(final GsonReader in, final GsonWriter out) {
+    switch (in.peek()) {
+    case BEGIN_ARRAY:
+      in.readArrayStart();
+      out.beginArray();
+      while (in.hasNext()) {
+        copy(in, out);
+      }
+      in.readArrayEnd();
+      out.endArray();
+      break;
+    case BEGIN_OBJECT:
+      in.readObjectStart();
+      out.beginObject();
+      while (in.hasNext()) {
+        out.name(in.readName());
+        copy(in, out);
+      }
+      in.readObjectEnd();
+      out.endObject();
+      break;
+    case STRING:
+      out.writeString(in.readStringRaw());
+      break;
+    case NUMBER:
+      out.jsonValue(in.readRawValue());
+      break;
+    case BOOLEAN:
+      out.writeBoolean(in.readBooleanRaw());
+      break;
+    case NULL:
+      in.readNullRaw();
+      out.jsonValue("null");
+      break;
+    default:
+      throw new IllegalStateException("Expected a value but was " + in.peek() + ".");
+    }
+  }
+
+  /**
+   * Returns the value of the member {@code name}, or {@code null} if there is
+   * none. Use this instead of {@code get()}, which throws for missing names on
+   * a {@link com.github.gv2011.util.json.JsonObject JsonObject}.
+   */
+  static JsonNode member(final Map<String, JsonNode> object, final String name) {
+    return object.getOrDefault(name, null);
+  }
+
+  static void write(final JsonNode node, final GsonWriter out) {
+    switch (node.jsonNodeType()) {
+    case NULL:
+      out.jsonValue("null");
+      break;
+    case BOOLEAN:
+      out.writeBoolean(node.asBoolean());
+      break;
+    case NUMBER:
+      out.writeDecimal(node.asNumber());
+      break;
+    case STRING:
+      out.writeString(node.asString());
+      break;
+    case LIST:
+      out.beginArray();
+      for (final JsonNode element : node.asList()) {
+        write(element, out);
+      }
+      out.endArray();
+      break;
+    case OBJECT:
+      out.beginObject();
+      for (final Map.Entry<String, JsonNode> member : node.asObject().entrySet()) {
+        out.name(member.getKey());
+        write(member.getValue(), out);
+      }
+      out.endObject();
+      break;
+    default:
+      throw new IllegalArgumentException();
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.github.gv2011.gsoncore;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for {@link GsoncoreAdapter#deserialize(com.github.gv2011.util.json.JsonFactory, String)}.
+ */
+@Name("com.github.gv2011.gsoncore.Deserialize")
+@Label("JSON Deserialize")
+@Category({"JSON"})
+@Description("Parsing of a JSON string into a tree")
+final class JsonDeserializeEvent extends jdk.jfr.Event {
+
+  /** Only used to check whether the event is enabled, so that disabled events allocate nothing. */
+  private static final JsonDeserializeEvent PROBE = new JsonDeserializeEvent();
+
+  /** Must only be called through {@link JsonEvents}. */
+  static boolean enabled() {
+    return PROBE.isEnabled();
+  }
+
+  @Label("Characters")
+  long chars;
+
+  @Label("Tokens")
+  long tokens;
+
+  @Label("Depth")
+  @Description("Maximum nesting depth of arrays and objects")
+  int depth;
+}
@@ -0,0 +1,319 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.staticClass;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.gv2011.util.json.JsonList;
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.num.Decimal;
+
+/**
+ * Computes the differences between two JSON documents as a
+ * <a href="https://www.rfc-editor.org/rfc/rfc6902">JSON Patch</a> that
+ * transforms the source into the target.
+ *
+ * <p>Both documents are read in lockstep. As long as objects have the same
+ * member names in the same order and arrays are compared element by element,
+ * nothing is materialized. When the names of an object diverge, the remaining
+ * members of that object are read into trees on both sides and compared by
+ * name, so memory is bounded by the largest such object rather than by the
+ * documents. Values that only exist in the target are copied to the patch
+ * straight from the target reader.
+ *
+ * <p>Array differences are reported by index: elements are replaced in place,
+ * and surplus elements are removed or added at the end. Moves within arrays
+ * are not detected. Numbers are compared by value, so {@code 1} and {@code
+ * 1.0} are equal.
+ */
+public final class JsonDiff {
+
+  private JsonDiff(){staticClass();}
+
+  /**
+   * Reads the next value of {@code source} and of {@code target} and writes the
+   * patch as an array of operations to {@code patch}. The readers must have
+   * been created with a {@link com.github.gv2011.util.json.JsonFactory
+   * JsonFactory}. Neither the readers nor the writer are closed.
+   */
+  public static void diff(final GsonReader source, final GsonReader target, final GsonWriter patch) {
+    patch.beginArray();
+    new Differ(source, target, patch).diff();
+    patch.endArray();
+  }
+
+  private static final class Differ {
+    private final GsonReader source;
+    private final GsonReader target;
+    private final GsonWriter patch;
+    /** The JSON Pointer of the current location. */
+    private final StringBuilder path = new StringBuilder();
+
+    private Differ(final GsonReader source, final GsonReader target, final GsonWriter patch) {
+      this.source = source;
+      this.target = target;
+      this.patch = patch;
+    }
+
+    private void diff() {
+      final JsonToken s = source.peek();
+      final JsonToken t = target.peek();
+      if (s == JsonToken.BEGIN_OBJECT && t == JsonToken.BEGIN_OBJECT) {
+        diffObjects();
+      } else if (s == JsonToken.BEGIN_ARRAY && t == JsonToken.BEGIN_ARRAY) {
+        diffArrays();
+      } else if (s == t && s != JsonToken.BEGIN_OBJECT && s != JsonToken.BEGIN_ARRAY) {
+        diffPrimitives(s);
+      } else {
+        source.skipValue();
+        operation("replace");
+        patch.name("value");
+        JsonCopy.copy(target, patch);
+        patch.endObject();
+      }
+    }
+
+    private void diffPrimitives(final JsonToken token) {
+      switch (token) {
+      case STRING: {
+        final String value = target.readStringRaw();
+        if (!source.readStringRaw().equals(value)) {
+          replace().writeString(value);
+          patch.endObject();
+        }
+        break;
+      }
+      case NUMBER: {
+        final Decimal value = target.readNumberRaw();
+        if (!equal(source.readNumberRaw(), value)) {
+          replace().writeDecimal(value);
+          patch.endObject();
+        }
+        break;
+      }
+      case BOOLEAN: {
+        final boolean value = target.readBooleanRaw();
+        if (source.readBooleanRaw() != value) {
+          replace().writeBoolean(value);
+          patch.endObject();
+        }
+        break;
+      }
+      case NULL:
+        source.readNullRaw();
+        target.readNullRaw();
+        break;
+      default:
+        throw new IllegalStateException("Expected a value but was " + token + ".");
+      }
+    }
+
+    private void diffObjects() {
+      source.readObjectStart();
+      target.readObjectStart();
+      final int length = path.length();
+      while (source.hasNext() && target.hasNext()) {
+        final String sourceName = source.readName();
+        final String targetName = target.readName();
+        if (!sourceName.equals(targetName)) {
+          diffMembers(remainingMembers(source, sourceName), remainingMembers(target, targetName));
+          break;
+        }
+        appendName(sourceName);
+        diff();
+        path.setLength(length);
+      }
+      while (source.hasNext()) {
+        appendName(source.readName());
+        source.skipValue();
+        operation("remove");
+        patch.endObject();
+        path.setLength(length);
+      }
+      while (target.hasNext()) {
+        appendName(target.readName());
+        operation("add");
+        patch.name("value");
+        JsonCopy.copy(target, patch);
+        patch.endObject();
+        path.setLength(length);
+      }
+      source.readObjectEnd();
+      target.readObjectEnd();
+    }
+
+    private void diffArrays() {
+      source.readArrayStart();
+      target.readArrayStart();
+      final int length = path.length();
+      int index = 0;
+      while (source.hasNext() && target.hasNext()) {
+        path.append('/').append(index++);
+        diff();
+        path.setLength(length);
+      }
+      // Removing shifts the following elements, so all surplus elements are removed at the same index.
+      path.append('/').append(index);
+      while (source.hasNext()) {
+        source.skipValue();
+        operation("remove");
+        patch.endObject();
+      }
+      path.setLength(length);
+      while (target.hasNext()) {
+        path.append('/').append(index++);
+        operation("add");
+        patch.name("value");
+        JsonCopy.copy(target, patch);
+        patch.endObject();
+        path.setLength(length);
+      }
+      source.readArrayEnd();
+      target.readArrayEnd();
+    }
+
+    /**
+     * Reads the rest of the current object, starting with the value of the
+     * member {@code name}, whose name has already been read.
+     */
+    private static Map<String, JsonNode> remainingMembers(final GsonReader in, final String name) {
+      final Map<String, JsonNode> members = new LinkedHashMap<>();
+      members.put(name, in.readNode());
+      while (in.hasNext()) {
+        members.put(in.readName(), in.readNode());
+      }
+      return members;
+    }
+
+    private void diffMembers(final Map<String, JsonNode> sourceMembers, final Map<String, JsonNode> targetMembers) {
+      final int length = path.length();
+      for (final String name : sourceMembers.keySet()) {
+        if (!targetMembers.containsKey(name)) {
+          appendName(name);
+          operation("remove");
+          patch.endObject();
+          path.setLength(length);
+        }
+      }
+      for (final Map.Entry<String, JsonNode> member : targetMembers.entrySet()) {
+        appendName(member.getKey());
+        final JsonNode sourceValue = JsonCopy.member(sourceMembers, member.getKey());
+        if (sourceValue == null) {
+          operation("add");
+          patch.name("value");
+          JsonCopy.write(member.getValue(), patch);
+          patch.endObject();
+        } else {
+          diff(sourceValue, member.getValue());
+        }
+        path.setLength(length);
+      }
+    }
+
+    /**
+     * The tree version of {@link #diff()}, for materialized values.
+     */
+    private void diff(final JsonNode source, final JsonNode target) {
+      if (source.jsonNodeType() != target.jsonNodeType()) {
+        replace(target);
+        return;
+      }
+      switch (target.jsonNodeType()) {
+      case OBJECT:
+        diffMembers(source.asObject(), target.asObject());
+        break;
+      case LIST: {
+        final JsonList sourceList = source.asList();
+        final JsonList targetList = target.asList();
+        final int length = path.length();
+        final int common = Math.min(sourceList.size(), targetList.size());
+        for (int i = 0; i < common; i++) {
+          path.append('/').append(i);
+          diff(sourceList.get(i), targetList.get(i));
+          path.setLength(length);
+        }
+        path.append('/').append(common);
+        for (int i = common; i < sourceList.size(); i++) {
+          operation("remove");
+          patch.endObject();
+        }
+        path.setLength(length);
+        for (int i = common; i < targetList.size(); i++) {
+          path.append('/').append(i);
+          operation("add");
+          patch.name("value");
+          JsonCopy.write(targetList.get(i), patch);
+          patch.endObject();
+          path.setLength(length);
+        }
+        break;
+      }
+      case STRING:
+        if (!source.asString().equals(target.asString())) {
+          replace(target);
+        }
+        break;
+      case NUMBER:
+        if (!equal(source.asNumber(), target.asNumber())) {
+          replace(target);
+        }
+        break;
+      case BOOLEAN:
+        if (source.asBoolean() != target.asBoolean()) {
+          replace(target);
+        }
+        break;
+      default:
+        break;
+      }
+    }
+
+    private static boolean equal(final Decimal a, final Decimal b) {
+      return a.toEcmaString().equals(b.toEcmaString());
+    }
+
+    private void replace(final JsonNode value) {
+      JsonCopy.write(value, replace());
+      patch.endObject();
+    }
+
+    /**
+     * Starts a replace operation, to be completed by writing the value and
+     * ending the object.
+     */
+    private GsonWriter replace() {
+      operation("replace");
+      patch.name("value");
+      return patch;
+    }
+
+    /**
+     * Begins an operation object with the current path.
+     */
+    private void operation(final String op) {
+      patch.beginObject();
+      patch.name("op");
+      patch.writeString(op);
+      patch.name("path");
+      patch.writeString(path.toString());
+    }
+
+    /**
+     * Appends {@code name} to the path, escaped as required by JSON Pointer.
+     */
+    private void appendName(final String name) {
+      path.append('/');
+      for (int i = 0, n = name.length(); i < n; i++) {
+        final char c = name.charAt(i);
+        if (c == '~') {
+          path.append("~0");
+        } else if (c == '/') {
+          path.append("~1");
+        } else {
+          path.append(c);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.github.gv2011.gsoncore;
+
+/**
+ * The kinds of malformed input reported by {@link MalformedJsonException#error()}.
+ */
+public enum JsonError {
+
+  UNTERMINATED_ARRAY("Unterminated array"),
+  UNTERMINATED_OBJECT("Unterminated object"),
+  EXPECTED_NAME("Expected name"),
+  EXPECTED_COLON("Expected ':'"),
+  EXPECTED_VALUE("Expected value"),
+  UNEXPECTED_VALUE("Unexpected value"),
+  UNTERMINATED_VALUE("Unterminated value"),
+  UNTERMINATED_STRING("Unterminated string"),
+  UNTERMINATED_ESCAPE("Unterminated escape sequence"),
+  MALFORMED_ESCAPE("Malformed escape sequence"),
+  UNTERMINATED_COMMENT("Unterminated comment"),
+  MALFORMED_NUMBER("Malformed number"),
+  NON_FINITE_NUMBER("JSON forbids NaN and infinities"),
+  END_OF_INPUT("End of input"),
+  NOT_LENIENT("Use JsonReader.setLenient(true) to accept malformed JSON"),
+  DEPTH_LIMIT("Maximum nesting depth exceeded"),
+  STRING_LIMIT("Maximum string length exceeded"),
+  NUMBER_LIMIT("Maximum number length exceeded"),
+  DOCUMENT_LIMIT("Maximum document size exceeded"),
+  MEMBER_LIMIT("Maximum number of object members exceeded");
+
+  private final String message;
+
+  private JsonError(final String message) {
+    this.message = message;
+  }
+
+  public String message() {
+    return message;
+  }
+}
@@ -0,0 +1,34 @@
+package com.github.gv2011.gsoncore;
+
+/**
+ * Checks whether the JFR events are enabled. The {@code jdk.jfr} module is
+ * optional, so the event classes are only touched if it is present.
+ */
+final class JsonEvents {
+
+  private static final boolean AVAILABLE = available();
+
+  private JsonEvents() {}
+
+  static boolean readEnabled() {
+    return AVAILABLE && JsonReadEvent.enabled();
+  }
+
+  static boolean writeEnabled() {
+    return AVAILABLE && JsonWriteEvent.enabled();
+  }
+
+  static boolean deserializeEnabled() {
+    return AVAILABLE && JsonDeserializeEvent.enabled();
+  }
+
+  private static boolean available() {
+    try {
+      JsonReadEvent.enabled();
+      return true;
+    } catch (final LinkageError e) {
+      // jdk.jfr.Event cannot be loaded.
+      return false;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.github.gv2011.gsoncore;
+
+/**
+ * The encodings supported by {@link GsoncoreAdapter#newJsonReader(com.github.gv2011.util.json.JsonFactory,
+ * java.io.InputStream, JsonFormat)} and {@link GsoncoreAdapter#newJsonWriter(java.io.OutputStream, JsonFormat,
+ * boolean)}.
+ */
+public enum JsonFormat {
+
+  /** JSON text, encoded as UTF-8. */
+  TEXT,
+
+  /** The compact binary encoding of {@link BinaryJsonWriter} and {@link BinaryJsonReader}. */
+  BINARY,
+
+  /**
+   * The binary encoding with a name table shared by all top-level values of
+   * the stream, for long-lived streams of similar messages. Readers detect it
+   * automatically, so reading is the same as for {@link #BINARY}.
+   */
+  BINARY_SHARED_NAMES
+}
@@ -0,0 +1,118 @@
+package com.github.gv2011.gsoncore;
+
+/**
+ * Resource limits enforced by a {@link GsonReader} to protect against hostile
+ * input. Every limit is unbounded unless set. Exceeding a limit causes a
+ * {@link MalformedJsonException} with one of the {@code *_LIMIT} {@link
+ * JsonError} codes.
+ *
+ * <p>Instances are immutable and may be shared between threads, for example:
+ * <pre>   {@code
+ *   static final JsonLimits LIMITS = JsonLimits.NONE
+ *     .withMaxDepth(64)
+ *     .withMaxStringLength(65536)
+ *     .withMaxDocumentSize(1 << 20);
+ * }</pre>
+ */
+public final class JsonLimits {
+
+  public static final JsonLimits NONE = new JsonLimits(
+    Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE
+  );
+
+  private final int maxDepth;
+  private final int maxStringLength;
+  private final int maxNumberLength;
+  private final long maxDocumentSize;
+  private final int maxMembers;
+
+  private JsonLimits(
+    final int maxDepth, final int maxStringLength, final int maxNumberLength,
+    final long maxDocumentSize, final int maxMembers
+  ) {
+    this.maxDepth = maxDepth;
+    this.maxStringLength = maxStringLength;
+    this.maxNumberLength = maxNumberLength;
+    this.maxDocumentSize = maxDocumentSize;
+    this.maxMembers = maxMembers;
+  }
+
+  /**
+   * The maximum nesting depth of arrays and objects. Also applies to values
+   * skipped with raw skipping.
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * The maximum length of a string or name, in UTF-16 code units after
+   * unescaping. Strings that are skipped are only limited by the document size.
+   */
+  public int maxStringLength() {
+    return maxStringLength;
+  }
+
+  /**
+   * The maximum number of characters of a number literal.
+   */
+  public int maxNumberLength() {
+    return maxNumberLength;
+  }
+
+  /**
+   * The maximum number of characters of input consumed for one document,
+   * including whitespace. The reader fails as soon as it would have to look
+   * beyond it. In a {@linkplain GsonReader#setDocumentSequence(boolean)
+   * document sequence}, every document is counted from the position at which
+   * {@link GsonReader#hasNextDocument()} was called for it.
+   */
+  public long maxDocumentSize() {
+    return maxDocumentSize;
+  }
+
+  /**
+   * The maximum number of members of a single object. Not checked for objects
+   * skipped with raw skipping.
+   */
+  public int maxMembers() {
+    return maxMembers;
+  }
+
+  public JsonLimits withMaxDepth(final int maxDepth) {
+    return new JsonLimits(positive(maxDepth), maxStringLength, maxNumberLength, maxDocumentSize, maxMembers);
+  }
+
+  public JsonLimits withMaxStringLength(final int maxStringLength) {
+    return new JsonLimits(maxDepth, positive(maxStringLength), maxNumberLength, maxDocumentSize, maxMembers);
+  }
+
+  public JsonLimits withMaxNumberLength(final int maxNumberLength) {
+    return new JsonLimits(maxDepth, maxStringLength, positive(maxNumberLength), maxDocumentSize, maxMembers);
+  }
+
+  public JsonLimits withMaxDocumentSize(final long maxDocumentSize) {
+    if (maxDocumentSize <= 0) {
+      throw new IllegalArgumentException("Limit must be positive: " + maxDocumentSize);
+    }
+    return new JsonLimits(maxDepth, maxStringLength, maxNumberLength, maxDocumentSize, maxMembers);
+  }
+
+  public JsonLimits withMaxMembers(final int maxMembers) {
+    return new JsonLimits(maxDepth, maxStringLength, maxNumberLength, maxDocumentSize, positive(maxMembers));
+  }
+
+  private static int positive(final int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive: " + limit);
+    }
+    return limit;
+  }
+
+  @Override
+  public String toString() {
+    return "JsonLimits[maxDepth=" + maxDepth + ", maxStringLength=" + maxStringLength
+      + ", maxNumberLength=" + maxNumberLength + ", maxDocumentSize=" + maxDocumentSize
+      + ", maxMembers=" + maxMembers + "]";
+  }
+}
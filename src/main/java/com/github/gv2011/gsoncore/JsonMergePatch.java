@@ -0,0 +1,90 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.staticClass;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.json.JsonNodeType;
+
+/**
+ * Applies a <a href="https://www.rfc-editor.org/rfc/rfc7396">JSON Merge
+ * Patch</a> to a document while it is streamed from a {@link GsonReader} to a
+ * {@link GsonWriter}. Only the patch is held as a tree. The source is never
+ * materialized: members that the patch does not touch are copied token by
+ * token, members it removes are skipped, and objects it modifies are merged
+ * recursively as they are read. Memory therefore depends on the patch and on
+ * the nesting depth, not on the size of the document.
+ */
+public final class JsonMergePatch {
+
+  private JsonMergePatch(){staticClass();}
+
+  /**
+   * Reads the next value of {@code source}, applies {@code patch} and writes
+   * the result to {@code out}. Neither the reader nor the writer is closed.
+   */
+  public static void apply(final JsonNode patch, final GsonReader source, final GsonWriter out) {
+    if (patch.jsonNodeType() != JsonNodeType.OBJECT) {
+      source.skipValue();
+      JsonCopy.write(patch, out);
+    } else if (source.peek() != JsonToken.BEGIN_OBJECT) {
+      source.skipValue();
+      writeWithoutNulls(patch, out);
+    } else {
+      merge(patch.asObject(), source, out);
+    }
+  }
+
+  private static void merge(final Map<String, JsonNode> patch, final GsonReader source, final GsonWriter out) {
+    final Set<String> seen = new HashSet<>();
+    source.readObjectStart();
+    out.beginObject();
+    while (source.hasNext()) {
+      final String name = source.readName();
+      final JsonNode value = JsonCopy.member(patch, name);
+      if (value == null) {
+        out.name(name);
+        JsonCopy.copy(source, out);
+      } else {
+        seen.add(name);
+        if (value.isNull()) {
+          source.skipValue();
+        } else {
+          out.name(name);
+          apply(value, source, out);
+        }
+      }
+    }
+    source.readObjectEnd();
+    for (final Map.Entry<String, JsonNode> member : patch.entrySet()) {
+      if (!member.getValue().isNull() && !seen.contains(member.getKey())) {
+        out.name(member.getKey());
+        writeWithoutNulls(member.getValue(), out);
+      }
+    }
+    out.endObject();
+  }
+
+  /**
+   * Writes the result of applying {@code patch} to a value that is not an
+   * object: the patch itself, without the members whose value is {@code null}.
+   */
+  private static void writeWithoutNulls(final JsonNode patch, final GsonWriter out) {
+    if (patch.jsonNodeType() == JsonNodeType.OBJECT) {
+      final Map<String, JsonNode> members = patch.asObject();
+      out.beginObject();
+      for (final Map.Entry<String, JsonNode> member : members.entrySet()) {
+        if (!member.getValue().isNull()) {
+          out.name(member.getKey());
+          writeWithoutNulls(member.getValue(), out);
+        }
+      }
+      out.endObject();
+    } else {
+      JsonCopy.write(patch, out);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.github.gv2011.gsoncore;
+
+/**
+ * Receives the counters of a {@link GsonReader} or {@link GsonWriter} once per
+ * document, when the reader or writer is closed. Counting only takes place if
+ * metrics have been set with {@code setMetrics}, so there is no cost when they
+ * are not used. {@link JsonStatistics} is an implementation that aggregates
+ * the values and exports them via JMX.
+ *
+ * <p>The times are elapsed wall-clock times from {@code setMetrics} to {@code
+ * close}. They include any time the caller spends between tokens, e.g.
+ * waiting for input or computing the next value, not only the time spent in
+ * the reader or writer.
+ *
+ * <p>Implementations shared by several readers or writers must be thread safe.
+ */
+public interface JsonMetrics {
+
+  /**
+   * @param tokens the number of tokens (names, values and brackets) read
+   * @param chars the number of characters consumed
+   * @param refills the number of times the read buffer was refilled
+   * @param escapes the number of escape sequences decoded
+   * @param maxDepth the maximum nesting depth of arrays and objects
+   * @param nanos the elapsed time between setting the metrics and closing the reader
+   */
+  void documentRead(long tokens, long chars, long refills, long escapes, int maxDepth, long nanos);
+
+  /**
+   * @param tokens the number of tokens (names, values and brackets) written
+   * @param chars the number of characters written
+   * @param escapes the number of characters that had to be escaped
+   * @param maxDepth the maximum nesting depth of arrays and objects
+   * @param nanos the elapsed time between setting the metrics and closing the writer
+   */
+  void documentWritten(long tokens, long chars, long escapes, int maxDepth, long nanos);
+}
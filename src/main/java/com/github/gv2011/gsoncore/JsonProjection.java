@@ -0,0 +1,316 @@
+package com.github.gv2011.gsoncore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import com.github.gv2011.util.json.JsonList;
+import com.github.gv2011.util.json.JsonNode;
+
+/**
+ * A compiled set of <a href="http://goessner.net/articles/JsonPath/">JsonPath</a>
+ * expressions used to extract selected values from a stream without building
+ * the whole tree. Values that are not selected are skipped with
+ * {@link GsonReader#skipValue()}.
+ *
+ * <p>Supported path elements are {@code $} (the root), {@code .name},
+ * {@code ['name']}, {@code [index]}, {@code [*]} (any array element) and
+ * {@code .*} (any member), for example {@code $.user.id} or
+ * {@code $.items[*].price}. Names that contain {@code .}, {@code [},
+ * {@code ]} or {@code '}, and the name {@code *}, must use the bracket
+ * notation. If one selected path is a prefix of another, both are delivered:
+ * first the enclosing value, then the selected values inside it.
+ */
+public final class JsonProjection {
+
+  private final Node root;
+
+  private JsonProjection(final Node root) {
+    this.root = root;
+  }
+
+  public static JsonProjection of(final String... paths) {
+    final Node root = new Node();
+    for (final String path : paths) {
+      parse(root, path);
+    }
+    root.inheritWildcards();
+    return new JsonProjection(root);
+  }
+
+  /**
+   * Consumes the next value from {@code in} and passes every selected value
+   * together with its concrete path to {@code consumer}.
+   */
+  void read(final GsonReader in, final BiConsumer<String, JsonNode> consumer) {
+    read(in, root, new StringBuilder().append('$'), consumer);
+  }
+
+  private void read(
+    final GsonReader in, final Node node, final StringBuilder path, final BiConsumer<String, JsonNode> consumer
+  ) {
+    if (node.selected) {
+      final JsonNode value = in.readNode();
+      consumer.accept(path.toString(), value);
+      select(value, node, path, consumer);
+    } else {
+      final int length = path.length();
+      switch (in.peek()) {
+      case BEGIN_ARRAY:
+        if (node.anyIndex == null && node.indices.isEmpty()) {
+          in.skipValue();
+        } else {
+          in.readArrayStart();
+          int index = 0;
+          while (in.hasNext()) {
+            final Node child = node.child(index);
+            if (child == null) {
+              in.skipValue();
+            } else {
+              read(in, child, path.append('[').append(index).append(']'), consumer);
+              path.setLength(length);
+            }
+            index++;
+          }
+          in.readArrayEnd();
+        }
+        break;
+      case BEGIN_OBJECT:
+        if (node.anyName == null && node.names.isEmpty()) {
+          in.skipValue();
+        } else {
+          in.readObjectStart();
+          while (in.hasNext()) {
+            final String name = in.readName();
+            final Node child = node.child(name);
+            if (child == null) {
+              in.skipValue();
+            } else {
+              read(in, child, appendName(path, name), consumer);
+              path.setLength(length);
+            }
+          }
+          in.readObjectEnd();
+        }
+        break;
+      default:
+        in.skipValue();
+      }
+    }
+  }
+
+  /**
+   * Passes the values selected by the children of {@code node} inside the
+   * already materialized {@code value} to {@code consumer}.
+   */
+  private static void select(
+    final JsonNode value, final Node node, final StringBuilder path, final BiConsumer<String, JsonNode> consumer
+  ) {
+    final int length = path.length();
+    switch (value.jsonNodeType()) {
+    case LIST: {
+      final JsonList list = value.asList();
+      for (int i = 0; i < list.size(); i++) {
+        final Node child = node.child(i);
+        if (child != null) {
+          deliver(list.get(i), child, path.append('[').append(i).append(']'), consumer);
+          path.setLength(length);
+        }
+      }
+      break;
+    }
+    case OBJECT:
+      for (final Map.Entry<String, JsonNode> member : value.asObject().entrySet()) {
+        final Node child = node.child(member.getKey());
+        if (child != null) {
+          deliver(member.getValue(), child, appendName(path, member.getKey()), consumer);
+          path.setLength(length);
+        }
+      }
+      break;
+    default:
+    }
+  }
+
+  private static void deliver(
+    final JsonNode value, final Node node, final StringBuilder path, final BiConsumer<String, JsonNode> consumer
+  ) {
+    if (node.selected) {
+      consumer.accept(path.toString(), value);
+    }
+    select(value, node, path, consumer);
+  }
+
+  /**
+   * Appends {@code .name}, or {@code ['name']} if the dot notation would be
+   * ambiguous.
+   */
+  private static StringBuilder appendName(final StringBuilder path, final String name) {
+    boolean plain = !name.isEmpty() && !name.equals("*");
+    for (int i = 0; plain && i < name.length(); i++) {
+      final char c = name.charAt(i);
+      plain = c != '.' && c != '[' && c != ']' && c != '\'';
+    }
+    return plain ? path.append('.').append(name) : path.append("['").append(name).append("']");
+  }
+
+  /**
+   * Returns {@code path} in canonical notation, i.e. the concrete path passed
+   * to the consumer of {@link
+   * GsonReader#readProjected(JsonProjection, BiConsumer)} for the value it
+   * selects. The path must not contain wildcards.
+   */
+  static String concretePath(final String path) {
+    final Node root = new Node();
+    parse(root, path);
+    final StringBuilder result = new StringBuilder().append('$');
+    Node node = root;
+    while (!node.selected) {
+      if (node.anyName != null || node.anyIndex != null) {
+        throw new IllegalArgumentException("Path must not contain wildcards: " + path);
+      }
+      if (!node.names.isEmpty()) {
+        final Map.Entry<String, Node> child = node.names.entrySet().iterator().next();
+        appendName(result, child.getKey());
+        node = child.getValue();
+      } else {
+        final Map.Entry<Integer, Node> child = node.indices.entrySet().iterator().next();
+        result.append('[').append(child.getKey()).append(']');
+        node = child.getValue();
+      }
+    }
+    return result.toString();
+  }
+
+  private static void parse(final Node root, final String path) {
+    final int length = path.length();
+    if (length == 0 || path.charAt(0) != '$') {
+      throw new IllegalArgumentException("Path must start with '$': " + path);
+    }
+    Node node = root;
+    int i = 1;
+    while (i < length) {
+      final char c = path.charAt(i);
+      if (c == '.') {
+        int end = i + 1;
+        while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+          end++;
+        }
+        if (end == i + 1) {
+          throw new IllegalArgumentException("Empty name in path: " + path);
+        }
+        final String name = path.substring(i + 1, end);
+        node = name.equals("*") ? node.anyName() : node.name(name);
+        i = end;
+      } else if (c == '[' && path.startsWith("['", i)) {
+        final int end = path.indexOf("']", i + 2);
+        if (end == -1) {
+          throw new IllegalArgumentException("Unterminated '[' in path: " + path);
+        }
+        node = node.name(path.substring(i + 2, end));
+        i = end + 2;
+      } else if (c == '[') {
+        final int end = path.indexOf(']', i);
+        if (end == -1) {
+          throw new IllegalArgumentException("Unterminated '[' in path: " + path);
+        }
+        final String selector = path.substring(i + 1, end);
+        if (selector.equals("*")) {
+          node = node.anyIndex();
+        } else {
+          try {
+            node = node.index(Integer.parseInt(selector));
+          } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid index in path: " + path, e);
+          }
+        }
+        i = end + 1;
+      } else {
+        throw new IllegalArgumentException("Unexpected character '" + c + "' in path: " + path);
+      }
+    }
+    node.selected = true;
+  }
+
+  private static final class Node {
+    private final Map<String, Node> names = new HashMap<>();
+    private final Map<Integer, Node> indices = new HashMap<>();
+    private Node anyName;
+    private Node anyIndex;
+    private boolean selected;
+
+    private Node name(final String name) {
+      return names.computeIfAbsent(name, n -> new Node());
+    }
+
+    private Node index(final int index) {
+      return indices.computeIfAbsent(index, n -> new Node());
+    }
+
+    private Node anyName() {
+      if (anyName == null) {
+        anyName = new Node();
+      }
+      return anyName;
+    }
+
+    private Node anyIndex() {
+      if (anyIndex == null) {
+        anyIndex = new Node();
+      }
+      return anyIndex;
+    }
+
+    /**
+     * Makes every explicitly named or indexed child also select what the
+     * corresponding wildcard selects, so that matching needs to follow only one
+     * node per level.
+     */
+    private void inheritWildcards() {
+      if (anyName != null) {
+        for (final Node child : names.values()) {
+          child.merge(anyName);
+        }
+      }
+      if (anyIndex != null) {
+        for (final Node child : indices.values()) {
+          child.merge(anyIndex);
+        }
+      }
+      for (final Node child : names.values()) {
+        child.inheritWildcards();
+      }
+      for (final Node child : indices.values()) {
+        child.inheritWildcards();
+      }
+      if (anyName != null) {
+        anyName.inheritWildcards();
+      }
+      if (anyIndex != null) {
+        anyIndex.inheritWildcards();
+      }
+    }
+
+    private void merge(final Node other) {
+      selected |= other.selected;
+      other.names.forEach((n, c) -> name(n).merge(c));
+      other.indices.forEach((i, c) -> index(i).merge(c));
+      if (other.anyName != null) {
+        anyName().merge(other.anyName);
+      }
+      if (other.anyIndex != null) {
+        anyIndex().merge(other.anyIndex);
+      }
+    }
+
+    private Node child(final String name) {
+      final Node child = names.get(name);
+      return child != null ? child : anyName;
+    }
+
+    private Node child(final int index) {
+      final Node child = indices.isEmpty() ? null : indices.get(index);
+      return child != null ? child : anyIndex;
+    }
+  }
+}
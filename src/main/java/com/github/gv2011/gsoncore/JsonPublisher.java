@@ -0,0 +1,200 @@
+package com.github.gv2011.gsoncore;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.gv2011.util.json.JsonNode;
+
+/**
+ * Publishes the elements of a top-level array, or the values of a sequence of
+ * top-level values like NDJSON, as {@link JsonNode}s. Values are only read
+ * when they have been requested, so at most one value is held in memory at a
+ * time and a slow subscriber slows down reading instead of letting values
+ * pile up.
+ *
+ * <p>Reading and all signals to the subscriber happen on the given {@link
+ * Executor}, one task at a time. Reading may block if the input does, e.g.
+ * when the reader was created by a {@link JsonByteSubscriber} that is waiting
+ * for the next chunk; an executor of virtual threads is a good fit then. The
+ * reader is closed when the publisher completes, fails or is cancelled.
+ *
+ * <p>A publisher can be subscribed once.
+ */
+public final class JsonPublisher implements Flow.Publisher<JsonNode> {
+
+  private final GsonReader in;
+  private final boolean array;
+  private final Executor executor;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  private JsonPublisher(final GsonReader in, final boolean array, final Executor executor) {
+    assert in != null && executor != null;
+    this.in = in;
+    this.array = array;
+    this.executor = executor;
+  }
+
+  /**
+   * Publishes the elements of the top-level array read by {@code in}.
+   */
+  public static JsonPublisher ofArray(final GsonReader in, final Executor executor) {
+    return new JsonPublisher(in, true, executor);
+  }
+
+  /**
+   * Publishes the top-level values read by {@code in}, which is switched to
+   * {@link GsonReader#setDocumentSequence(boolean) document sequence} mode.
+   */
+  public static JsonPublisher ofSequence(final GsonReader in, final Executor executor) {
+    in.setDocumentSequence(true);
+    return new JsonPublisher(in, false, executor);
+  }
+
+  @Override
+  public void subscribe(final Flow.Subscriber<? super JsonNode> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber == null");
+    }
+    if (subscribed.compareAndSet(false, true)) {
+      new Subscription(subscriber).start();
+    } else {
+      executor.execute(() -> {
+        subscriber.onSubscribe(new Flow.Subscription() {
+          @Override
+          public void request(final long n) {}
+          @Override
+          public void cancel() {}
+        });
+        subscriber.onError(new IllegalStateException("Already subscribed."));
+      });
+    }
+  }
+
+  private final class Subscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super JsonNode> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    /** Number of times the drain has been requested, the drain runs while non-zero. */
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private volatile Throwable invalidRequest;
+
+    /** Only accessed by the drain. */
+    private boolean started = false;
+    private boolean done = false;
+
+    private Subscription(final Flow.Subscriber<? super JsonNode> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    private void start() {
+      pending.incrementAndGet();
+      executor.execute(() -> {
+        subscriber.onSubscribe(this);
+        drain(pending.get());
+      });
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+      } else {
+        demand.accumulateAndGet(n, (d, m) -> d + m < 0 ? Long.MAX_VALUE : d + m);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        executor.execute(() -> drain(1));
+      }
+    }
+
+    private void drain(int missed) {
+      do {
+        emit();
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void emit() {
+      while (!done) {
+        if (cancelled) {
+          done = true;
+          in.close();
+          return;
+        }
+        final Throwable invalid = invalidRequest;
+        if (invalid != null) {
+          fail(invalid);
+          return;
+        }
+        if (demand.get() == 0) {
+          return;
+        }
+        final JsonNode node;
+        try {
+          if (!hasNext()) {
+            done = true;
+            in.close();
+            subscriber.onComplete();
+            return;
+          }
+          node = in.readNode();
+        } catch (final RuntimeException e) {
+          fail(e);
+          return;
+        }
+        if (demand.get() != Long.MAX_VALUE) {
+          demand.decrementAndGet();
+        }
+        try {
+          subscriber.onNext(node);
+        } catch (final RuntimeException e) {
+          // The subscriber violated the protocol, treat it as cancelled.
+          done = true;
+          in.close();
+          throw e;
+        }
+      }
+    }
+
+    private boolean hasNext() {
+      if (array) {
+        if (!started) {
+          started = true;
+          in.readArrayStart();
+        }
+        if (in.hasNext()) {
+          return true;
+        }
+        in.readArrayEnd();
+        return false;
+      } else {
+        return in.hasNextDocument();
+      }
+    }
+
+    private void fail(final Throwable e) {
+      done = true;
+      try {
+        in.close();
+      } catch (final RuntimeException ce) {
+        // addSuppressed() rejects the exception itself.
+        if (ce != e) {
+          e.addSuppressed(ce);
+        }
+      }
+      subscriber.onError(e);
+    }
+  }
+}
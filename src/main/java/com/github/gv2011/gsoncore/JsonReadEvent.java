@@ -0,0 +1,35 @@
+package com.github.gv2011.gsoncore;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for {@link GsonReader#readNode()}.
+ */
+@Name("com.github.gv2011.gsoncore.Read")
+@Label("JSON Read")
+@Category({"JSON"})
+@Description("Reading of a JSON value into a tree")
+final class JsonReadEvent extends jdk.jfr.Event {
+
+  /** Only used to check whether the event is enabled, so that disabled events allocate nothing. */
+  private static final JsonReadEvent PROBE = new JsonReadEvent();
+
+  /** Must only be called through {@link JsonEvents}. */
+  static boolean enabled() {
+    return PROBE.isEnabled();
+  }
+
+  @Label("Characters")
+  @Description("Characters consumed, including surrounding whitespace")
+  long chars;
+
+  @Label("Tokens")
+  long tokens;
+
+  @Label("Depth")
+  @Description("Maximum nesting depth of arrays and objects")
+  int depth;
+}
@@ -0,0 +1,202 @@
+package com.github.gv2011.gsoncore;
+
+import java.util.Arrays;
+
+/**
+ * A compiled set of object member names, each mapped to a typed slot. It is
+ * used by {@link GsonReader#readName(JsonSchema)} to dispatch names by hashing
+ * the characters in the read buffer without creating strings, and by
+ * {@link GsonReader#readObject(JsonSchema, Values)} to read fixed-shape
+ * objects directly into primitive slots.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ */
+public final class JsonSchema {
+
+  public enum Type {BOOLEAN, INT, LONG, DOUBLE, STRING}
+
+  public static final class Field {
+    private final String name;
+    private final Type type;
+
+    private Field(final String name, final Type type) {
+      this.name = name;
+      this.type = type;
+    }
+  }
+
+  private final String[] names;
+  private final char[][] nameChars;
+  private final Type[] types;
+
+  /**
+   * Open addressing hash table of slot + 1, 0 marks an empty entry. The hash
+   * function is the one of {@link String#hashCode()}, so that names read from
+   * the buffer and names given as strings hash identically.
+   */
+  private final int[] table;
+  private final int mask;
+
+  private JsonSchema(final Field[] fields) {
+    final int size = fields.length;
+    names = new String[size];
+    nameChars = new char[size][];
+    types = new Type[size];
+    int capacity = 4;
+    while (capacity < size * 2) {
+      capacity <<= 1;
+    }
+    table = new int[capacity];
+    mask = capacity - 1;
+    for (int slot = 0; slot < size; slot++) {
+      final String name = fields[slot].name;
+      if (slot(name) != -1) {
+        throw new IllegalArgumentException("Duplicate name: " + name);
+      }
+      names[slot] = name;
+      nameChars[slot] = name.toCharArray();
+      types[slot] = fields[slot].type;
+      int i = name.hashCode() & mask;
+      while (table[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      table[i] = slot + 1;
+    }
+  }
+
+  public static Field field(final String name, final Type type) {
+    if (name == null || type == null) {
+      throw new NullPointerException();
+    }
+    return new Field(name, type);
+  }
+
+  public static JsonSchema of(final Field... fields) {
+    return new JsonSchema(fields.clone());
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  public String name(final int slot) {
+    return names[slot];
+  }
+
+  public Type type(final int slot) {
+    return types[slot];
+  }
+
+  public Values newValues() {
+    return new Values(this);
+  }
+
+  /**
+   * Returns the slot of {@code name}, or -1 if it is not part of this schema.
+   */
+  public int slot(final String name) {
+    int i = name.hashCode() & mask;
+    int entry;
+    while ((entry = table[i]) != 0) {
+      if (names[entry - 1].equals(name)) {
+        return entry - 1;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the slot of the name in {@code chars[start..start+length)}, or -1
+   * if it is not part of this schema.
+   */
+  int slot(final char[] chars, final int start, final int length) {
+    int h = 0;
+    final int end = start + length;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + chars[i];
+    }
+    int i = h & mask;
+    int entry;
+    while ((entry = table[i]) != 0) {
+      final char[] candidate = nameChars[entry - 1];
+      if (candidate.length == length && Arrays.equals(candidate, 0, length, chars, start, end)) {
+        return entry - 1;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * The values of one object read with a schema. Booleans, ints and longs are
+   * kept in a {@code long} per slot, so reading does not box. A slot whose
+   * member was missing or {@code null} is not present. Instances are meant to
+   * be reused for consecutive objects and are not thread safe.
+   */
+  public static final class Values {
+    private final JsonSchema schema;
+    final boolean[] present;
+    final long[] longs;
+    final double[] doubles;
+    final String[] strings;
+
+    private Values(final JsonSchema schema) {
+      this.schema = schema;
+      final int size = schema.size();
+      present = new boolean[size];
+      longs = new long[size];
+      doubles = new double[size];
+      strings = new String[size];
+    }
+
+    public JsonSchema schema() {
+      return schema;
+    }
+
+    public void clear() {
+      Arrays.fill(present, false);
+      Arrays.fill(strings, null);
+    }
+
+    public boolean isPresent(final int slot) {
+      return present[slot];
+    }
+
+    public boolean getBoolean(final int slot) {
+      check(slot, Type.BOOLEAN);
+      return longs[slot] != 0;
+    }
+
+    public int getInt(final int slot) {
+      check(slot, Type.INT);
+      return (int) longs[slot];
+    }
+
+    public long getLong(final int slot) {
+      check(slot, Type.LONG);
+      return longs[slot];
+    }
+
+    public double getDouble(final int slot) {
+      check(slot, Type.DOUBLE);
+      return doubles[slot];
+    }
+
+    public String getString(final int slot) {
+      check(slot, Type.STRING);
+      return strings[slot];
+    }
+
+    private void check(final int slot, final Type type) {
+      if (schema.types[slot] != type) {
+        throw new IllegalArgumentException(
+          "Slot " + slot + " (" + schema.names[slot] + ") has type " + schema.types[slot] + ", not " + type + "."
+        );
+      }
+      if (!present[slot]) {
+        throw new IllegalStateException("No value for " + schema.names[slot] + ".");
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.wrap;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Receives the characters written by {@link GsonWriter}, one buffer at a time.
+ * The counterpart of {@link JsonSource}: implementations do not declare {@link
+ * IOException}, so the writer needs no lambda or exception translation per
+ * token, and I/O errors are handled once per buffer.
+ */
+abstract class JsonSink {
+
+  abstract void write(char[] buffer, int off, int len);
+
+  abstract void flush();
+
+  abstract void close();
+
+  static JsonSink of(final Writer out) {
+    return new WriterSink(out);
+  }
+
+  private static final class WriterSink extends JsonSink {
+    private final Writer out;
+
+    private WriterSink(final Writer out) {
+      this.out = out;
+    }
+
+    @Override
+    void write(final char[] buffer, final int off, final int len) {
+      try {
+        out.write(buffer, off, len);
+      } catch (final IOException e) {
+        throw wrap(e);
+      }
+    }
+
+    @Override
+    void flush() {
+      try {
+        out.flush();
+      } catch (final IOException e) {
+        throw wrap(e);
+      }
+    }
+
+    @Override
+    void close() {
+      try {
+        out.close();
+      } catch (final IOException e) {
+        throw wrap(e);
+      }
+    }
+  }
+}
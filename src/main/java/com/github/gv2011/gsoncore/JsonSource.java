@@ -0,0 +1,281 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.call;
+import static com.github.gv2011.util.ex.Exceptions.wrap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The characters read by {@link GsonReader}. Unlike {@link Reader}, sources
+ * are not synchronized and do not declare {@link IOException}, so refilling
+ * the read buffer neither takes a lock nor needs a lambda to translate
+ * exceptions. A {@link Reader} is just one kind of source.
+ */
+abstract class JsonSource {
+
+  /**
+   * Reads up to {@code len} characters, at least one.
+   *
+   * @return the number of characters read, or -1 at the end of the input.
+   */
+  abstract int read(char[] buffer, int off, int len);
+
+  abstract void close();
+
+  static JsonSource of(final Reader in) {
+    return new ReaderSource(in);
+  }
+
+  static JsonSource of(final CharSequence in) {
+    if (in instanceof String) {
+      return new StringSource((String) in);
+    } else if (in instanceof CharBuffer && ((CharBuffer) in).hasArray()) {
+      final CharBuffer chars = (CharBuffer) in;
+      return new CharArraySource(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+    } else {
+      return new CharSequenceSource(in);
+    }
+  }
+
+  /**
+   * UTF-8 encoded input. Malformed input is replaced by U+FFFD like {@link
+   * java.io.InputStreamReader} does.
+   */
+  static JsonSource of(final InputStream in) {
+    return new Utf8Source(in, ByteBuffer.allocate(8192).flip());
+  }
+
+  /**
+   * The remaining UTF-8 encoded bytes of {@code in}. The position of {@code in}
+   * is advanced as the input is read.
+   */
+  static JsonSource of(final ByteBuffer in) {
+    return new Utf8Source(null, in);
+  }
+
+  private static final class ReaderSource extends JsonSource {
+    private final Reader in;
+
+    private ReaderSource(final Reader in) {
+      this.in = in;
+    }
+
+    @Override
+    int read(final char[] buffer, final int off, final int len) {
+      try {
+        int n = in.read(buffer, off, len);
+        if (n == 0 && len > 0) {
+          // Tolerate one empty read, but do not spin on a reader that never blocks.
+          n = in.read(buffer, off, len);
+          if (n == 0) {
+            throw new IOException("Underlying reader returned zero characters");
+          }
+        }
+        return n;
+      } catch (final IOException e) {
+        throw wrap(e);
+      }
+    }
+
+    @Override
+    void close() {
+      call(in::close);
+    }
+  }
+
+  private static final class StringSource extends JsonSource {
+    private final String in;
+    private int pos = 0;
+
+    private StringSource(final String in) {
+      this.in = in;
+    }
+
+    @Override
+    int read(final char[] buffer, final int off, final int len) {
+      final int n = Math.min(len, in.length() - pos);
+      if (n <= 0) {
+        return -1;
+      }
+      in.getChars(pos, pos + n, buffer, off);
+      pos += n;
+      return n;
+    }
+
+    @Override
+    void close() {}
+  }
+
+  private static final class CharSequenceSource extends JsonSource {
+    private final CharSequence in;
+    private int pos = 0;
+
+    private CharSequenceSource(final CharSequence in) {
+      this.in = in;
+    }
+
+    @Override
+    int read(final char[] buffer, final int off, final int len) {
+      final int n = Math.min(len, in.length() - pos);
+      if (n <= 0) {
+        return -1;
+      }
+      for (int i = 0; i < n; i++) {
+        buffer[off + i] = in.charAt(pos + i);
+      }
+      pos += n;
+      return n;
+    }
+
+    @Override
+    void close() {}
+  }
+
+  private static final class CharArraySource extends JsonSource {
+    private final char[] in;
+    private int pos;
+    private final int end;
+
+    private CharArraySource(final char[] in, final int off, final int len) {
+      if (off < 0 || len < 0 || off + len > in.length) {
+        throw new IndexOutOfBoundsException();
+      }
+      this.in = in;
+      pos = off;
+      end = off + len;
+    }
+
+    @Override
+    int read(final char[] buffer, final int off, final int len) {
+      final int n = Math.min(len, end - pos);
+      if (n <= 0) {
+        return -1;
+      }
+      System.arraycopy(in, pos, buffer, off, n);
+      pos += n;
+      return n;
+    }
+
+    @Override
+    void close() {}
+  }
+
+  /**
+   * Decodes UTF-8 from a byte buffer, which is refilled from a stream if there
+   * is one.
+   */
+  private static final class Utf8Source extends JsonSource {
+    private final InputStream in;
+    /** In read mode. */
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean endOfInput = false;
+    private boolean flushed = false;
+
+    /** A wrapper of the last target buffer, reused because it is always the same. */
+    private char[] target;
+    private CharBuffer targetBuffer;
+
+    /** Decodes characters that do not fit into the target, i.e. the low surrogate of a pair. */
+    private final CharBuffer spare = CharBuffer.allocate(2);
+    private int pending = -1;
+
+    private Utf8Source(final InputStream in, final ByteBuffer bytes) {
+      this.in = in;
+      this.bytes = bytes;
+    }
+
+    @Override
+    int read(final char[] buffer, final int off, final int len) {
+      if (pending != -1) {
+        buffer[off] = (char) pending;
+        pending = -1;
+        return 1;
+      }
+      if (len == 1) {
+        spare.clear();
+        final int n = decode(spare);
+        if (n == -1) {
+          return -1;
+        }
+        buffer[off] = spare.get(0);
+        if (n == 2) {
+          pending = spare.get(1);
+        }
+        return 1;
+      }
+      if (buffer != target) {
+        target = buffer;
+        targetBuffer = CharBuffer.wrap(buffer);
+      }
+      final CharBuffer out = targetBuffer;
+      out.limit(off + len).position(off);
+      return decode(out);
+    }
+
+    private int decode(final CharBuffer out) {
+      final int start = out.position();
+      while (true) {
+        if (!flushed) {
+          final CoderResult result = decoder.decode(bytes, out, endOfInput);
+          if (endOfInput && result.isUnderflow()) {
+            decoder.flush(out);
+            flushed = true;
+          }
+        }
+        final int n = out.position() - start;
+        if (n > 0) {
+          return n;
+        }
+        if (flushed) {
+          return -1;
+        }
+        fill();
+      }
+    }
+
+    private void fill() {
+      if (in == null) {
+        endOfInput = true;
+        return;
+      }
+      bytes.compact();
+      try {
+        int n = in.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        if (n == 0) {
+          // Like InputStreamReader, fail instead of spinning.
+          n = in.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+          if (n == 0) {
+            throw new IOException("Underlying input stream returned zero bytes");
+          }
+        }
+        if (n == -1) {
+          endOfInput = true;
+        } else {
+          bytes.position(bytes.position() + n);
+        }
+      } catch (final IOException e) {
+        throw wrap(e);
+      } finally {
+        bytes.flip();
+      }
+    }
+
+    @Override
+    void close() {
+      if (in != null) {
+        call(in::close);
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.github.gv2011.gsoncore;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.gv2011.util.AutoCloseableNt;
+import com.github.gv2011.util.JmxUtils;
+
+/**
+ * Thread safe {@link JsonMetrics} that sums up the counters of all documents
+ * read and written with it. One instance is typically shared by all readers
+ * and writers of an application and registered with {@link #registerMBean()}.
+ */
+public final class JsonStatistics implements JsonMetrics, JsonStatisticsMXBean {
+
+  private final LongAdder documentsRead = new LongAdder();
+  private final LongAdder tokensRead = new LongAdder();
+  private final LongAdder charsRead = new LongAdder();
+  private final LongAdder bufferRefills = new LongAdder();
+  private final LongAdder escapesRead = new LongAdder();
+  private final LongAccumulator maxDepthRead = new LongAccumulator(Math::max, 0);
+  private final LongAdder readNanos = new LongAdder();
+
+  private final LongAdder documentsWritten = new LongAdder();
+  private final LongAdder tokensWritten = new LongAdder();
+  private final LongAdder charsWritten = new LongAdder();
+  private final LongAdder escapesWritten = new LongAdder();
+  private final LongAccumulator maxDepthWritten = new LongAccumulator(Math::max, 0);
+  private final LongAdder writeNanos = new LongAdder();
+
+  /**
+   * Registers this instance with the platform MBean server. Closing the result
+   * unregisters it.
+   */
+  public AutoCloseableNt registerMBean() {
+    return JmxUtils.registerMBean(this);
+  }
+
+  @Override
+  public void documentRead(
+    final long tokens, final long chars, final long refills, final long escapes, final int maxDepth, final long nanos
+  ) {
+    documentsRead.increment();
+    tokensRead.add(tokens);
+    charsRead.add(chars);
+    bufferRefills.add(refills);
+    escapesRead.add(escapes);
+    maxDepthRead.accumulate(maxDepth);
+    readNanos.add(nanos);
+  }
+
+  @Override
+  public void documentWritten(
+    final long tokens, final long chars, final long escapes, final int maxDepth, final long nanos
+  ) {
+    documentsWritten.increment();
+    tokensWritten.add(tokens);
+    charsWritten.add(chars);
+    escapesWritten.add(escapes);
+    maxDepthWritten.accumulate(maxDepth);
+    writeNanos.add(nanos);
+  }
+
+  @Override
+  public long getDocumentsRead() {
+    return documentsRead.sum();
+  }
+
+  @Override
+  public long getTokensRead() {
+    return tokensRead.sum();
+  }
+
+  @Override
+  public long getCharsRead() {
+    return charsRead.sum();
+  }
+
+  @Override
+  public long getBufferRefills() {
+    return bufferRefills.sum();
+  }
+
+  @Override
+  public long getEscapesRead() {
+    return escapesRead.sum();
+  }
+
+  @Override
+  public int getMaxDepthRead() {
+    return (int) maxDepthRead.get();
+  }
+
+  @Override
+  public long getReadNanos() {
+    return readNanos.sum();
+  }
+
+  @Override
+  public long getDocumentsWritten() {
+    return documentsWritten.sum();
+  }
+
+  @Override
+  public long getTokensWritten() {
+    return tokensWritten.sum();
+  }
+
+  @Override
+  public long getCharsWritten() {
+    return charsWritten.sum();
+  }
+
+  @Override
+  public long getEscapesWritten() {
+    return escapesWritten.sum();
+  }
+
+  @Override
+  public int getMaxDepthWritten() {
+    return (int) maxDepthWritten.get();
+  }
+
+  @Override
+  public long getWriteNanos() {
+    return writeNanos.sum();
+  }
+
+  @Override
+  public void reset() {
+    documentsRead.reset();
+    tokensRead.reset();
+    charsRead.reset();
+    bufferRefills.reset();
+    escapesRead.reset();
+    maxDepthRead.reset();
+    readNanos.reset();
+    documentsWritten.reset();
+    tokensWritten.reset();
+    charsWritten.reset();
+    escapesWritten.reset();
+    maxDepthWritten.reset();
+    writeNanos.reset();
+  }
+}
@@ -0,0 +1,41 @@
+package com.github.gv2011.gsoncore;
+
+/**
+ * JMX view of {@link JsonStatistics}.
+ */
+public interface JsonStatisticsMXBean {
+
+  long getDocumentsRead();
+
+  long getTokensRead();
+
+  long getCharsRead();
+
+  long getBufferRefills();
+
+  long getEscapesRead();
+
+  int getMaxDepthRead();
+
+  /**
+   * The summed elapsed time of the documents read, see {@link JsonMetrics}.
+   */
+  long getReadNanos();
+
+  long getDocumentsWritten();
+
+  long getTokensWritten();
+
+  long getCharsWritten();
+
+  long getEscapesWritten();
+
+  int getMaxDepthWritten();
+
+  /**
+   * The summed elapsed time of the documents written, see {@link JsonMetrics}.
+   */
+  long getWriteNanos();
+
+  void reset();
+}
@@ -0,0 +1,37 @@
+package com.github.gv2011.gsoncore;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event committed by {@link GsonWriter#flush()} and {@link
+ * GsonWriter#close()}, covering the output from the first token after the
+ * writer was created, reset or last flushed. No event is committed if nothing
+ * was written in between.
+ */
+@Name("com.github.gv2011.gsoncore.Write")
+@Label("JSON Write")
+@Category({"JSON"})
+@Description("Writing of JSON between two flushes of a writer")
+final class JsonWriteEvent extends jdk.jfr.Event {
+
+  /** Only used to check whether the event is enabled, so that disabled events allocate nothing. */
+  private static final JsonWriteEvent PROBE = new JsonWriteEvent();
+
+  /** Must only be called through {@link JsonEvents}. */
+  static boolean enabled() {
+    return PROBE.isEnabled();
+  }
+
+  @Label("Characters")
+  long chars;
+
+  @Label("Tokens")
+  long tokens;
+
+  @Label("Depth")
+  @Description("Maximum nesting depth of arrays and objects reached during the event")
+  int depth;
+}
@@ -20,12 +20,22 @@ package com.github.gv2011.gsoncore;
 /**
  * Thrown when a reader encounters malformed JSON. Some syntax errors can be
  * ignored by calling {@link GsonReader#setLenient(boolean)}.
+ *
+ * <p>Exceptions thrown by {@link GsonReader} carry an {@link #error()} code and
+ * the character {@link #offset()} where the problem was detected. If the reader
+ * is configured with {@link GsonReader#setCheapErrors(boolean)}, they have no
+ * stack trace and their message is only built when requested.
  */
 public final class MalformedJsonException extends RuntimeException {
   private static final long serialVersionUID = 1L;
 
+  private final JsonError error;
+  private final long offset;
+
   public MalformedJsonException(String msg) {
     super(msg);
+    error = null;
+    offset = -1;
   }
 
   public MalformedJsonException(String msg, Throwable throwable) {
@@ -33,11 +43,48 @@ public final class MalformedJsonException extends RuntimeException {
     // Using initCause() instead of calling super() because Java 1.5 didn't retrofit IOException
     // with a constructor with Throwable. This was done in Java 1.6
     initCause(throwable);
+    error = null;
+    offset = -1;
   }
 
   public MalformedJsonException(Throwable throwable) {
     // Using initCause() instead of calling super() because Java 1.5 didn't retrofit IOException
     // with a constructor with Throwable. This was done in Java 1.6
     initCause(throwable);
+    error = null;
+    offset = -1;
+  }
+
+  /**
+   * @param msg the message, or null to derive it from error and offset
+   */
+  MalformedJsonException(JsonError error, long offset, String msg, boolean stackTrace) {
+    super(msg, null, true, stackTrace);
+    this.error = error;
+    this.offset = offset;
+  }
+
+  /**
+   * Returns the kind of error, or null if it is unknown.
+   */
+  public JsonError error() {
+    return error;
+  }
+
+  /**
+   * Returns the number of characters consumed before the error was detected,
+   * or -1 if it is unknown.
+   */
+  public long offset() {
+    return offset;
+  }
+
+  @Override
+  public String getMessage() {
+    final String msg = super.getMessage();
+    if (msg == null && error != null) {
+      return error.message() + " at offset " + offset;
+    }
+    return msg;
   }
 }
@@ -0,0 +1,543 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.call;
+import static com.github.gv2011.util.ex.Exceptions.wrap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.github.gv2011.util.AutoCloseableNt;
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.num.Decimal;
+
+/**
+ * An index of a newline delimited JSON (NDJSON) file, kept in a separate file.
+ * It records the byte offset and length of every record and, for a set of key
+ * paths, the value each record has there. Lookups and range scans use the
+ * index to read and parse only the matching records, instead of scanning the
+ * data file. Typical use:
+ * <pre>   {@code
+ *   NdjsonIndex.build(jf, data, indexFile, "$.id", "$.event.time").close();
+ *   ...
+ *   try (NdjsonIndex index = NdjsonIndex.open(jf, data, indexFile)) {
+ *     index.lookup("$.id", "a-17", record -> ...);
+ *     index.range("$.event.time", 1700000000, 1700003600, record -> ...);
+ *   }
+ * }</pre>
+ *
+ * <p>Key paths use the syntax of {@link JsonProjection}, without wildcards.
+ * Strings, numbers and booleans are indexed; records where a key is missing,
+ * {@code null}, an array or an object are not found by that key. Keys are
+ * ordered by type first (booleans, numbers, strings), then by value; numbers
+ * are compared by value and strings by UTF-16 code units.
+ *
+ * <p>The index stores the size of the data file and is rejected if the file
+ * has changed size. Instances are not thread safe.
+ *
+ * <p>The index is held in memory: {@link #open} loads the offset and length of
+ * every record and all key values into arrays, and {@link #build} collects
+ * them for the whole file before writing the index. Only the records
+ * themselves are read from the data file on demand. Memory therefore grows
+ * with the number of records and the size of their keys.
+ */
+public final class NdjsonIndex implements AutoCloseableNt {
+
+  private static final int MAGIC = 0x4e444a49; // NDJI
+  private static final int VERSION = 1;
+  private static final int BUFFER_SIZE = 65536;
+
+  private static final byte BOOLEAN = 0;
+  private static final byte NUMBER = 1;
+  private static final byte STRING = 2;
+
+  private final FileChannel data;
+  private final GsonReader reader;
+  private final String[] keyPaths;
+  private final long[] offsets;
+  private final int[] lengths;
+  /** Per key path, the key values in key order. */
+  private final Object[][] keys;
+  /** Per key path, the record of each key value. */
+  private final int[][] records;
+
+  private ByteBuffer recordBuffer = ByteBuffer.allocate(0);
+
+  private NdjsonIndex(
+    final JsonFactory jf, final FileChannel data, final String[] keyPaths,
+    final long[] offsets, final int[] lengths, final Object[][] keys, final int[][] records
+  ) {
+    this.data = data;
+    reader = new GsonReader(jf, recordBuffer);
+    this.keyPaths = keyPaths;
+    this.offsets = offsets;
+    this.lengths = lengths;
+    this.keys = keys;
+    this.records = records;
+  }
+
+  /**
+   * Scans {@code data} once, writes the index for {@code keyPaths} to {@code
+   * index} and returns it opened.
+   */
+  public static NdjsonIndex build(
+    final JsonFactory jf, final Path data, final Path index, final String... keyPaths
+  ) {
+    final String[] paths = new String[keyPaths.length];
+    for (int i = 0; i < paths.length; i++) {
+      paths[i] = JsonProjection.concretePath(keyPaths[i]);
+    }
+    final Scanner scanner = new Scanner(jf, paths);
+    final long size = call(() -> Files.size(data));
+    try (InputStream in = Files.newInputStream(data)) {
+      scanner.scan(in);
+    } catch (final IOException e) {
+      throw wrap(e);
+    }
+    final Object[][] keys = new Object[paths.length][];
+    final int[][] records = new int[paths.length][];
+    for (int k = 0; k < paths.length; k++) {
+      final List<Entry> entries = scanner.entries.get(k);
+      // Stable, so equal keys stay in record order.
+      entries.sort((a, b) -> compare(a.key, b.key));
+      keys[k] = new Object[entries.size()];
+      records[k] = new int[entries.size()];
+      for (int i = 0; i < entries.size(); i++) {
+        keys[k][i] = entries.get(i).key;
+        records[k][i] = entries.get(i).record;
+      }
+    }
+    final long[] offsets = Arrays.copyOf(scanner.offsets, scanner.count);
+    final int[] lengths = Arrays.copyOf(scanner.lengths, scanner.count);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index)))) {
+      write(out, size, paths, offsets, lengths, keys, records);
+    } catch (final IOException e) {
+      throw wrap(e);
+    }
+    return new NdjsonIndex(jf, openData(data), paths, offsets, lengths, keys, records);
+  }
+
+  /**
+   * Opens an index previously written by {@link #build}.
+   */
+  public static NdjsonIndex open(final JsonFactory jf, final Path data, final Path index) {
+    final FileChannel channel = openData(data);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+      if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+        throw new IllegalArgumentException("Not an NDJSON index: " + index);
+      }
+      if (in.readLong() != channel.size()) {
+        throw new IllegalStateException("The index " + index + " does not match " + data + ".");
+      }
+      final String[] paths = new String[readVarint(in)];
+      for (int k = 0; k < paths.length; k++) {
+        paths[k] = readString(in);
+      }
+      final int count = readVarint(in);
+      final long[] offsets = new long[count];
+      final int[] lengths = new int[count];
+      long offset = 0;
+      for (int i = 0; i < count; i++) {
+        offset += readVarLong(in);
+        offsets[i] = offset;
+        lengths[i] = readVarint(in);
+      }
+      final Object[][] keys = new Object[paths.length][];
+      final int[][] records = new int[paths.length][];
+      for (int k = 0; k < paths.length; k++) {
+        final int size = readVarint(in);
+        keys[k] = new Object[size];
+        records[k] = new int[size];
+        for (int i = 0; i < size; i++) {
+          keys[k][i] = readKey(in);
+          records[k][i] = readVarint(in);
+        }
+      }
+      return new NdjsonIndex(jf, channel, paths, offsets, lengths, keys, records);
+    } catch (final IOException | RuntimeException e) {
+      call(channel::close);
+      throw e instanceof IOException ? wrap(e) : (RuntimeException) e;
+    }
+  }
+
+  private static FileChannel openData(final Path data) {
+    return call(() -> FileChannel.open(data, StandardOpenOption.READ));
+  }
+
+  /**
+   * Returns the number of records.
+   */
+  public int size() {
+    return offsets.length;
+  }
+
+  /**
+   * Returns the byte offset of {@code record} in the data file.
+   */
+  public long offset(final int record) {
+    return offsets[record];
+  }
+
+  /**
+   * Reads and parses {@code record}, the first record being 0.
+   */
+  public JsonNode record(final int record) {
+    final int length = lengths[record];
+    if (recordBuffer.capacity() < length) {
+      recordBuffer = ByteBuffer.allocate(Math.max(length, recordBuffer.capacity() * 2));
+    }
+    final ByteBuffer buffer = recordBuffer.clear().limit(length);
+    long position = offsets[record];
+    try {
+      while (buffer.hasRemaining()) {
+        final int n = data.read(buffer, position);
+        if (n == -1) {
+          throw new IllegalStateException("The data file has been truncated.");
+        }
+        position += n;
+      }
+    } catch (final IOException e) {
+      throw wrap(e);
+    }
+    reader.reset(buffer.flip());
+    return reader.readNode();
+  }
+
+  /**
+   * Passes all records whose value at {@code keyPath} equals {@code key} to
+   * {@code consumer}, in file order. The key is a {@link String}, {@link
+   * Boolean}, {@link Number} or {@link Decimal}. Numbers must be finite.
+   */
+  public void lookup(final String keyPath, final Object key, final Consumer<? super JsonNode> consumer) {
+    if (key == null) {
+      throw new NullPointerException("key == null");
+    }
+    range(keyPath, key, true, key, true, consumer);
+  }
+
+  /**
+   * Passes all records whose value at {@code keyPath} is at least {@code from}
+   * and less than {@code to} to {@code consumer}, in key order. A null bound
+   * is unbounded. Numeric bounds must be finite.
+   */
+  public void range(final String keyPath, final Object from, final Object to, final Consumer<? super JsonNode> consumer) {
+    range(keyPath, from, true, to, false, consumer);
+  }
+
+  private void range(
+    final String keyPath,
+    final Object from, final boolean fromInclusive, final Object to, final boolean toInclusive,
+    final Consumer<? super JsonNode> consumer
+  ) {
+    final int k = keyIndex(keyPath);
+    final Object[] keys = this.keys[k];
+    final int start = from == null ? 0 : bound(keys, normalize(from), !fromInclusive);
+    final int end = to == null ? keys.length : bound(keys, normalize(to), toInclusive);
+    final int[] records = this.records[k];
+    for (int i = start; i < end; i++) {
+      consumer.accept(record(records[i]));
+    }
+  }
+
+  @Override
+  public void close() {
+    call(data::close);
+  }
+
+  private int keyIndex(final String keyPath) {
+    final String path = JsonProjection.concretePath(keyPath);
+    for (int k = 0; k < keyPaths.length; k++) {
+      if (keyPaths[k].equals(path)) {
+        return k;
+      }
+    }
+    throw new IllegalArgumentException("Not an indexed key path: " + keyPath);
+  }
+
+  /**
+   * Returns the index of the first key greater than {@code key}, or greater
+   * than or equal to it if {@code after} is false.
+   */
+  private static int bound(final Object[] keys, final Object key, final boolean after) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      final int c = compare(keys[mid], key);
+      if (c < 0 || (after && c == 0)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static Object normalize(final Object key) {
+    if (key instanceof String || key instanceof Boolean || key instanceof BigDecimal) {
+      return key;
+    } else if (key instanceof Decimal) {
+      return ((Decimal) key).toBigDecimal();
+    } else if (key instanceof BigInteger) {
+      return new BigDecimal((BigInteger) key);
+    } else if (key instanceof Double || key instanceof Float) {
+      final double value = ((Number) key).doubleValue();
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        // JSON has no such numbers, so no record could match.
+        throw new IllegalArgumentException("Numeric keys must be finite: " + value);
+      }
+      return BigDecimal.valueOf(value);
+    } else if (key instanceof Number) {
+      return BigDecimal.valueOf(((Number) key).longValue());
+    } else {
+      throw new IllegalArgumentException("Unsupported key: " + key);
+    }
+  }
+
+  private static int compare(final Object a, final Object b) {
+    final int kind = kind(a);
+    final int c = Integer.compare(kind, kind(b));
+    if (c != 0) {
+      return c;
+    }
+    switch (kind) {
+    case BOOLEAN:
+      return Boolean.compare((Boolean) a, (Boolean) b);
+    case NUMBER:
+      return ((BigDecimal) a).compareTo((BigDecimal) b);
+    default:
+      return ((String) a).compareTo((String) b);
+    }
+  }
+
+  private static byte kind(final Object key) {
+    return key instanceof Boolean ? BOOLEAN : key instanceof BigDecimal ? NUMBER : STRING;
+  }
+
+  private static void write(
+    final DataOutputStream out, final long size, final String[] paths,
+    final long[] offsets, final int[] lengths, final Object[][] keys, final int[][] records
+  ) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeLong(size);
+    writeVarLong(out, paths.length);
+    for (final String path : paths) {
+      writeString(out, path);
+    }
+    writeVarLong(out, offsets.length);
+    long offset = 0;
+    for (int i = 0; i < offsets.length; i++) {
+      writeVarLong(out, offsets[i] - offset);
+      offset = offsets[i];
+      writeVarLong(out, lengths[i]);
+    }
+    for (int k = 0; k < paths.length; k++) {
+      writeVarLong(out, keys[k].length);
+      for (int i = 0; i < keys[k].length; i++) {
+        final Object key = keys[k][i];
+        final byte kind = kind(key);
+        out.writeByte(kind);
+        if (kind == BOOLEAN) {
+          out.writeBoolean((Boolean) key);
+        } else {
+          writeString(out, kind == NUMBER ? key.toString() : (String) key);
+        }
+        writeVarLong(out, records[k][i]);
+      }
+    }
+  }
+
+  private static Object readKey(final DataInputStream in) throws IOException {
+    switch (in.readUnsignedByte()) {
+    case BOOLEAN:
+      return in.readBoolean();
+    case NUMBER:
+      return new BigDecimal(readString(in));
+    case STRING:
+      return readString(in);
+    default:
+      throw new IllegalArgumentException("Corrupt NDJSON index.");
+    }
+  }
+
+  private static void writeString(final DataOutputStream out, final String s) throws IOException {
+    final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(final DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[readVarint(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeVarLong(final OutputStream out, long value) throws IOException {
+    while ((value & ~0x7fL) != 0) {
+      out.write((int) (value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarLong(final DataInputStream in) throws IOException {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int b = in.readUnsignedByte();
+      result |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Corrupt NDJSON index.");
+  }
+
+  private static int readVarint(final DataInputStream in) throws IOException {
+    return Math.toIntExact(readVarLong(in));
+  }
+
+  private static final class Entry {
+    private final Object key;
+    private final int record;
+
+    private Entry(final Object key, final int record) {
+      this.key = key;
+      this.record = record;
+    }
+  }
+
+  /**
+   * Splits the data into lines and extracts the keys of each record.
+   */
+  private static final class Scanner {
+    private final String[] paths;
+    private final JsonProjection projection;
+    private final GsonReader reader;
+    private final List<List<Entry>> entries = new ArrayList<>();
+    private final Object[] current;
+
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private int count = 0;
+
+    /** A line that continues beyond the current chunk. */
+    private byte[] line = new byte[1024];
+    private int lineLength = 0;
+
+    private Scanner(final JsonFactory jf, final String[] paths) {
+      this.paths = paths;
+      projection = JsonProjection.of(paths);
+      reader = new GsonReader(jf, ByteBuffer.allocate(0));
+      current = new Object[paths.length];
+      for (int k = 0; k < paths.length; k++) {
+        entries.add(new ArrayList<>());
+      }
+    }
+
+    private void scan(final InputStream in) throws IOException {
+      final byte[] chunk = new byte[BUFFER_SIZE];
+      long chunkOffset = 0;
+      long lineOffset = 0;
+      int n;
+      while ((n = in.read(chunk)) != -1) {
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+          if (chunk[i] == '\n') {
+            if (lineLength == 0) {
+              record(lineOffset, chunk, start, i - start);
+            } else {
+              append(chunk, start, i - start);
+              record(lineOffset, line, 0, lineLength);
+              lineLength = 0;
+            }
+            start = i + 1;
+            lineOffset = chunkOffset + start;
+          }
+        }
+        append(chunk, start, n - start);
+        chunkOffset += n;
+      }
+      record(lineOffset, line, 0, lineLength);
+    }
+
+    private void append(final byte[] bytes, final int off, final int len) {
+      if (lineLength + len > line.length) {
+        line = Arrays.copyOf(line, Math.max(lineLength + len, line.length * 2));
+      }
+      System.arraycopy(bytes, off, line, lineLength, len);
+      lineLength += len;
+    }
+
+    private void record(final long offset, final byte[] bytes, final int off, int len) {
+      while (len > 0 && isWhitespace(bytes[off + len - 1])) {
+        len--;
+      }
+      int blank = 0;
+      while (blank < len && isWhitespace(bytes[off + blank])) {
+        blank++;
+      }
+      if (blank == len) {
+        return;
+      }
+      if (count == offsets.length) {
+        offsets = Arrays.copyOf(offsets, count * 2);
+        lengths = Arrays.copyOf(lengths, count * 2);
+      }
+      offsets[count] = offset;
+      lengths[count] = len;
+      Arrays.fill(current, null);
+      reader.reset(ByteBuffer.wrap(bytes, off, len));
+      reader.readProjected(projection, (path, value) -> {
+        for (int k = 0; k < paths.length; k++) {
+          if (current[k] == null && paths[k].equals(path)) {
+            current[k] = key(value);
+          }
+        }
+      });
+      for (int k = 0; k < paths.length; k++) {
+        if (current[k] != null) {
+          entries.get(k).add(new Entry(current[k], count));
+        }
+      }
+      count++;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+      return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Returns the key for {@code value}, or null if it is not indexed.
+     */
+    private static Object key(final JsonNode value) {
+      switch (value.jsonNodeType()) {
+      case STRING:
+        return value.asString();
+      case NUMBER:
+        return value.asNumber().toBigDecimal();
+      case BOOLEAN:
+        return value.asBoolean();
+      default:
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.staticClass;
+
+import java.util.Map;
+
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.num.Decimal;
+
+/**
+ * A 64 bit hash of the structure and content of a JSON value. Object members
+ * are combined independently of their order, array elements depend on their
+ * position, and numbers are hashed by value, so that {@code 1}, {@code 1.0}
+ * and {@code 1e0} hash identically.
+ *
+ * <p>Numbers are equivalent if their exact decimal values are equal:
+ * <ul>
+ * <li>Integral values that fit into a {@code long} are hashed as that long, so
+ *   {@code 100}, {@code 1e2} and {@code 100.00} are equivalent, and so are
+ *   {@code 0} and {@code -0}.</li>
+ * <li>All other values are hashed by their normalized form {@link
+ *   Decimal#toEcmaString()}, which does not depend on trailing zeros or the
+ *   spelling of the exponent: {@code 1e400} and {@code 10e399} are
+ *   equivalent. Values are not rounded to doubles, so {@code 1} and {@code
+ *   1.0000000000000001} are different.</li>
+ * </ul>
+ * A number and a string with the same text are different.
+ *
+ * <p>The hash of a streamed value, computed by {@link GsonReader#readHash()},
+ * is the same as the hash of the corresponding tree computed by {@link
+ * #of(JsonNode)}. It is meant for deduplication, not for security purposes.
+ */
+public final class StructuralHash {
+
+  private StructuralHash(){staticClass();}
+
+  private static final long NULL = 0x9e3779b97f4a7c15L;
+  private static final long FALSE = 0xc2b2ae3d27d4eb4fL;
+  private static final long TRUE = 0x165667b19e3779f9L;
+  private static final long NUMBER = 0x27d4eb2f165667c5L;
+  private static final long STRING = 0x85ebca77c2b2ae63L;
+  private static final long ARRAY = 0xff51afd7ed558ccdL;
+  private static final long OBJECT = 0xc4ceb9fe1a85ec53L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  public static long of(final JsonNode node) {
+    switch (node.jsonNodeType()) {
+    case NULL:
+      return ofNull();
+    case BOOLEAN:
+      return ofBoolean(node.asBoolean());
+    case NUMBER:
+      return ofNumber(node.asNumber());
+    case STRING:
+      return ofString(node.asString());
+    case LIST:
+      long array = arrayStart();
+      int size = 0;
+      for (final JsonNode element : node.asList()) {
+        array = element(array, of(element));
+        size++;
+      }
+      return ofArray(array, size);
+    case OBJECT:
+      long object = 0;
+      for (final Map.Entry<String, JsonNode> member : node.asObject().entrySet()) {
+        object = member(object, member.getKey(), of(member.getValue()));
+      }
+      return ofObject(object, node.asObject().size());
+    default:
+      throw new IllegalArgumentException();
+    }
+  }
+
+  static long ofNull() {
+    return NULL;
+  }
+
+  static long ofBoolean(final boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  static long ofNumber(final long value) {
+    return mix(NUMBER ^ mix(value));
+  }
+
+  static long ofNumber(final Decimal value) {
+    if (value.isIntg() && value.fitsLong()) {
+      return ofNumber(value.longValue());
+    } else {
+      return mix(NUMBER ^ chars(value.toEcmaString()));
+    }
+  }
+
+  static long ofString(final String value) {
+    return mix(STRING ^ chars(value));
+  }
+
+  /**
+   * Starts the hash of an array.
+   */
+  static long arrayStart() {
+    return ARRAY;
+  }
+
+  /**
+   * Adds the next array element to {@code array}.
+   */
+  static long element(final long array, final long element) {
+    return (array ^ element) * FNV_PRIME;
+  }
+
+  static long ofArray(final long array, final int size) {
+    return mix(array + size);
+  }
+
+  /**
+   * Adds a member to {@code object}. Addition makes the result independent of
+   * the member order.
+   */
+  static long member(final long object, final String name, final long value) {
+    return object + mix(chars(name) * FNV_PRIME + value);
+  }
+
+  static long ofObject(final long object, final int size) {
+    return mix(OBJECT ^ (object + size));
+  }
+
+  /**
+   * FNV-1a over the UTF-16 code units.
+   */
+  private static long chars(final String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0, length = s.length(); i < length; i++) {
+      h = (h ^ s.charAt(i)) * FNV_PRIME;
+    }
+    return h;
+  }
+
+  /**
+   * The finalization step of MurmurHash3 (fmix64).
+   */
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,153 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncJsonOutputTest {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testPartialWrites() {
+    for (final int chunk : new int[]{1000, 3000, AsyncJsonOutput.BUFFER_SIZE}) {
+      final Channel channel = new Channel(chunk, -1);
+      final AsyncJsonOutput output = new AsyncJsonOutput(channel, 2);
+      final GsonWriter writer = output.newWriter("");
+      produce(output, writer);
+      writer.close();
+      output.completion().join();
+      assertThat(channel.isOpen(), is(false));
+      // Every partial write is continued with another write of the same buffer.
+      assertThat(channel.writes.get() >= channel.data.size() / chunk, is(true));
+      assertThat(new String(channel.data.toByteArray(), StandardCharsets.UTF_8), is(expected()));
+    }
+  }
+
+  @Test
+  public void testFailure() {
+    final Channel channel = new Channel(3000, 3);
+    final AsyncJsonOutput output = new AsyncJsonOutput(channel, 2);
+    final GsonWriter writer = output.newWriter("");
+    assertThrows(RuntimeException.class, () -> {
+      produce(output, writer);
+      writer.close();
+    });
+    final CompletionException e = assertThrows(CompletionException.class, () -> output.completion().join());
+    assertThat(e.getCause().getMessage(), is("Broken pipe"));
+    assertThat(output.writable().isDone(), is(true));
+    assertThat(channel.isOpen(), is(false));
+    assertThat(channel.writes.get(), is(3));
+  }
+
+  private static void produce(final AsyncJsonOutput output, final GsonWriter writer) {
+    write(writer, () -> {
+      if (!output.isWritable()) {
+        writer.flush();
+        output.writable().join();
+      }
+    });
+  }
+
+  private static String expected() {
+    final StringWriter out = new StringWriter();
+    final GsonWriter writer = new GsonWriter(out, "");
+    write(writer, () -> {});
+    writer.flush();
+    return out.toString();
+  }
+
+  private static void write(final GsonWriter writer, final Runnable afterElement) {
+    writer.beginArray();
+    for (int i = 0; i < 5000; i++) {
+      writer.writeString("value " + i + " ä€😀");
+      afterElement.run();
+    }
+    writer.endArray();
+  }
+
+  /**
+   * Completes every write on another thread, transferring at most {@code chunk}
+   * bytes. Write number {@code failAt} fails.
+   */
+  private final class Channel implements AsynchronousByteChannel {
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final int chunk;
+    private final int failAt;
+    private volatile boolean open = true;
+
+    private Channel(final int chunk, final int failAt) {
+      this.chunk = chunk;
+      this.failAt = failAt;
+    }
+
+    @Override
+    public <A> void write(
+      final ByteBuffer src, final A attachment, final CompletionHandler<Integer, ? super A> handler
+    ) {
+      final int n = writes.incrementAndGet();
+      executor.execute(() -> {
+        if (n == failAt) {
+          handler.failed(new IOException("Broken pipe"), attachment);
+        } else {
+          final byte[] bytes = new byte[Math.min(chunk, src.remaining())];
+          src.get(bytes);
+          synchronized (data) {
+            data.write(bytes, 0, bytes.length);
+          }
+          handler.completed(bytes.length, attachment);
+        }
+      });
+    }
+
+    @Override
+    public Future<Integer> write(final ByteBuffer src) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <A> void read(
+      final ByteBuffer dst, final A attachment, final CompletionHandler<Integer, ? super A> handler
+    ) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<Integer> read(final ByteBuffer dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.json.JsonReader;
+import com.github.gv2011.util.json.JsonUtils;
+import com.github.gv2011.util.json.JsonWriter;
+
+public class BinaryJsonTest {
+
+  private final JsonFactory jf = JsonUtils.jsonFactory();
+
+  @Test
+  public void testTags() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (BinaryJsonWriter w = new BinaryJsonWriter(bytes)) {
+      w.beginObject();
+      w.name("a");
+      w.beginArray();
+      w.nullValue();
+      w.writeBoolean(false);
+      w.writeBoolean(true);
+      w.writeLong(-1);
+      w.writeDecimal(jf.deserialize("1.5").asNumber());
+      w.writeString("é");
+      w.endArray();
+      w.name("b");
+      w.beginObject();
+      w.name("a");
+      w.writeLong(1);
+      w.endObject();
+      w.endObject();
+    }
+    assertThat(bytes.toByteArray(), is(bytes(
+      BinaryFormat.BEGIN_OBJECT,
+        BinaryFormat.NAME, 1, 'a',
+        BinaryFormat.BEGIN_ARRAY,
+          BinaryFormat.NULL,
+          BinaryFormat.FALSE,
+          BinaryFormat.TRUE,
+          BinaryFormat.INT, 1,
+          BinaryFormat.DECIMAL, 2, 1, 15,
+          BinaryFormat.STRING, 2, 0xc3, 0xa9,
+        BinaryFormat.END_ARRAY,
+        BinaryFormat.NAME, 1, 'b',
+        BinaryFormat.BEGIN_OBJECT,
+          BinaryFormat.NAME_REF, 0,
+          BinaryFormat.INT, 2,
+        BinaryFormat.END_OBJECT,
+      BinaryFormat.END_OBJECT
+    )));
+    assertThat(
+      read(bytes.toByteArray()),
+      is(jf.deserialize("{\"a\":[null,false,true,-1,1.5,\"é\"],\"b\":{\"a\":1}}"))
+    );
+  }
+
+  @Test
+  public void testNumbers() {
+    roundTrip(
+      "[0,-1,1,63,-64,64,9223372036854775807,-9223372036854775808,9223372036854775808,"
+      + "-1e30,1e-30,0.1,-0.000001,123456789.123456789]"
+    );
+  }
+
+  @Test
+  public void testLongString() {
+    final StringBuilder s = new StringBuilder();
+    while (s.length() < 20000) {
+      s.append("€-😀-x");
+    }
+    roundTrip("[\"" + s + "\",\"" + s.substring(0, 3000) + "\"]");
+  }
+
+  @Test
+  public void testFullNameTable() {
+    final StringBuilder json = new StringBuilder("{");
+    for (int i = 0; i < BinaryFormat.MAX_NAMES + 100; i++) {
+      json.append("\"n").append(i).append("\":{\"n").append(i % 7).append("\":").append(i).append("},");
+    }
+    json.setLength(json.length() - 1);
+    roundTrip(json.append('}').toString());
+  }
+
+  @Test
+  public void testSharedNames() {
+    final String[] messages = {
+      "{\"id\":1,\"name\":\"a\",\"tags\":[\"x\"]}",
+      "{\"id\":2,\"name\":\"b\",\"tags\":[]}",
+      "{\"id\":3,\"name\":\"c\",\"extra\":{\"id\":4}}"
+    };
+    final byte[] separate = write(false, messages);
+    final byte[] shared = write(true, messages);
+    assertThat(shared[0], is((byte) BinaryFormat.SHARED_NAMES));
+    assertThat(shared.length, lessThan(separate.length));
+    for (final byte[] bytes : new byte[][]{separate, shared}) {
+      try (BinaryJsonReader r = new BinaryJsonReader(jf, new ByteArrayInputStream(bytes))) {
+        for (final String message : messages) {
+          assertThat(r.readNode(), is(jf.deserialize(message)));
+        }
+        assertThat(r.hasNext(), is(false));
+      }
+    }
+  }
+
+  @Test
+  public void testSharedNamesTableFull() {
+    final String[] messages = new String[3];
+    for (int m = 0; m < messages.length; m++) {
+      final StringBuilder json = new StringBuilder("{");
+      for (int i = 0; i < BinaryFormat.MAX_NAMES * 2 / 3; i++) {
+        json.append("\"m").append(m).append('_').append(i).append("\":").append(i).append(',');
+      }
+      messages[m] = json.append("\"common\":true}").toString();
+    }
+    final byte[] bytes = write(true, messages);
+    try (BinaryJsonReader r = new BinaryJsonReader(jf, new ByteArrayInputStream(bytes))) {
+      for (final String message : messages) {
+        assertThat(r.readNode(), is(jf.deserialize(message)));
+      }
+    }
+  }
+
+  @Test
+  public void testSkipValue() {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (BinaryJsonWriter w = new BinaryJsonWriter(out)) {
+      w.beginObject();
+      w.name("a");
+      w.beginArray();
+      w.writeLong(1);
+      w.beginObject();
+      w.name("b");
+      w.writeString("x");
+      w.endObject();
+      w.writeDecimal(jf.deserialize("2.5").asNumber());
+      w.endArray();
+      w.name("c");
+      w.writeBoolean(true);
+      w.endObject();
+    }
+    final byte[] bytes = out.toByteArray();
+    try (BinaryJsonReader r = new BinaryJsonReader(jf, new ByteArrayInputStream(bytes))) {
+      r.readObjectStart();
+      assertThat(r.readName(), is("a"));
+      r.skipValue();
+      assertThat(r.readName(), is("c"));
+      assertThat(r.readBooleanRaw(), is(true));
+      r.readObjectEnd();
+    }
+  }
+
+  @Test
+  public void testAdapterFormats() {
+    final GsoncoreAdapter adapter = new GsoncoreAdapter();
+    final JsonNode expected = jf.deserialize("{\"a\":[1,2.5,\"x\",null,{\"b\":false}]}");
+    for (final JsonFormat format : JsonFormat.values()) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final JsonWriter w = adapter.newJsonWriter(bytes, format, true);
+      expected.write(w);
+      w.flush();
+      final JsonReader r = adapter.newJsonReader(jf, new ByteArrayInputStream(bytes.toByteArray()), format);
+      assertThat(format.toString(), r.readNode(), is(expected));
+      r.close();
+    }
+  }
+
+  private void roundTrip(final String json) {
+    final JsonNode expected = jf.deserialize(json);
+    assertThat(read(write(false, json)), is(expected));
+  }
+
+  private byte[] write(final boolean sharedNames, final String... documents) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (BinaryJsonWriter w = new BinaryJsonWriter(bytes, sharedNames)) {
+      for (final String document : documents) {
+        jf.deserialize(document).write(w);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private JsonNode read(final byte[] bytes) {
+    try (BinaryJsonReader r = new BinaryJsonReader(jf, new ByteArrayInputStream(bytes))) {
+      final JsonNode result = r.readNode();
+      assertThat(r.hasNext(), is(false));
+      return result;
+    }
+  }
+
+  private static byte[] bytes(final int... values) {
+    final byte[] result = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = (byte) values[i];
+    }
+    return result;
+  }
+}
@@ -0,0 +1,140 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.StringWriter;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import com.github.gv2011.util.num.Decimal;
+import com.github.gv2011.util.num.NumUtils;
+
+public class CanonicalGsonWriterTest {
+
+  @Test
+  public void testSurrogates() {
+    assertThat(write(w -> w.writeString("😀x")), is("\"😀x\""));
+    for (final String s : new String[]{"\ud83d", "x\ude00", "\ude00\ud83d", "\ud83dx"}) {
+      assertThrows(IllegalArgumentException.class, () -> write(w -> w.writeString(s)));
+      assertThrows(IllegalArgumentException.class, () -> write(w -> {
+        w.beginObject();
+        w.name(s);
+      }));
+    }
+  }
+
+  /**
+   * The example of RFC 8785, section 3.2.2.
+   */
+  @Test
+  public void testRfc8785Example() {
+    assertThat(write(w -> {
+      w.beginObject();
+      w.name("numbers");
+      w.beginArray();
+      for (final double d : new double[]{333333333.33333329, 1E30, 4.50, 2e-3, 0.000000000000000000000000001}) {
+        w.writeDecimal(NumUtils.num(d));
+      }
+      w.endArray();
+      w.name("string");
+      w.writeString("\u20ac$\017\nA'B\"\\\\\"/");
+      w.name("literals");
+      w.beginArray();
+      w.nullValue();
+      w.writeBoolean(true);
+      w.writeBoolean(false);
+      w.endArray();
+      w.endObject();
+    }), is(
+      "{\"literals\":[null,true,false],\"numbers\":[333333333.3333333,1e+30,4.5,0.002,1e-27],"
+      + "\"string\":\"\u20ac$\\u000f\\nA'B\\\"\\\\\\\\\\\"/\"}"
+    ));
+  }
+
+  /**
+   * The sorting example of RFC 8785, section 3.2.3.
+   */
+  @Test
+  public void testRfc8785Sorting() {
+    final String[][] members = {
+      {"\u20ac", "Euro Sign"},
+      {"\r", "Carriage Return"},
+      {"\ufb33", "Hebrew Letter Dalet With Dagesh"},
+      {"1", "One"},
+      {"\ud83d\ude00", "Emoji: Grinning Face"},
+      {"\u0080", "Control"},
+      {"\u00f6", "Latin Small Letter O With Diaeresis"},
+    };
+    assertThat(write(w -> {
+      w.beginObject();
+      for (final String[] member : members) {
+        w.name(member[0]);
+        w.writeString(member[1]);
+      }
+      w.endObject();
+    }), is(
+      "{\"\\r\":\"Carriage Return\",\"1\":\"One\",\"\u0080\":\"Control\","
+      + "\"\u00f6\":\"Latin Small Letter O With Diaeresis\",\"\u20ac\":\"Euro Sign\","
+      + "\"\ud83d\ude00\":\"Emoji: Grinning Face\",\"\ufb33\":\"Hebrew Letter Dalet With Dagesh\"}"
+    ));
+  }
+
+  /**
+   * The number samples of RFC 8785, appendix B. The writer takes decimals, so
+   * each double is passed as the expected decimal, after checking that this
+   * decimal denotes it.
+   */
+  @Test
+  public void testRfc8785Numbers() {
+    final Object[][] samples = {
+      {0x0000000000000000L, "0"},
+      {0x8000000000000000L, "0"},
+      {0x0000000000000001L, "5e-324"},
+      {0x8000000000000001L, "-5e-324"},
+      {0x7fefffffffffffffL, "1.7976931348623157e+308"},
+      {0xffefffffffffffffL, "-1.7976931348623157e+308"},
+      {0x4340000000000000L, "9007199254740992"},
+      {0xc340000000000000L, "-9007199254740992"},
+      {0x4430000000000000L, "295147905179352830000"},
+      {0x44b52d02c7e14af5L, "9.999999999999997e+22"},
+      {0x44b52d02c7e14af6L, "1e+23"},
+      {0x44b52d02c7e14af7L, "1.0000000000000001e+23"},
+      {0x444b1ae4d6e2ef4eL, "999999999999999700000"},
+      {0x444b1ae4d6e2ef4fL, "999999999999999900000"},
+      {0x444b1ae4d6e2ef50L, "1e+21"},
+      {0x3eb0c6f7a0b5ed8cL, "9.999999999999997e-7"},
+      {0x3eb0c6f7a0b5ed8dL, "0.000001"},
+      {0x41b3de4355555553L, "333333333.3333332"},
+      {0x41b3de4355555554L, "333333333.33333325"},
+      {0x41b3de4355555555L, "333333333.3333333"},
+      {0x41b3de4355555556L, "333333333.3333334"},
+      {0x41b3de4355555557L, "333333333.33333343"},
+      {0xbecbf647612f3696L, "-0.0000033333333333333333"},
+      {0x43143ff3c1cb0959L, "1424953923781206.2"},
+    };
+    for (final Object[] sample : samples) {
+      final String hex = Long.toHexString((Long) sample[0]);
+      final double value = Double.longBitsToDouble((Long) sample[0]);
+      final Decimal decimal = NumUtils.parse((String) sample[1]);
+      assertThat(hex, decimal.doubleValue(), is(value == 0 ? 0.0 : value));
+      assertThat(hex, write(w -> w.writeDecimal(decimal)), is(sample[1]));
+      // GsonWriter formats doubles itself.
+      final StringWriter out = new StringWriter();
+      final GsonWriter gsonWriter = new GsonWriter(out, "");
+      gsonWriter.writeArray(new double[]{value});
+      gsonWriter.flush();
+      assertThat(hex, out.toString(), is("[" + sample[1] + "]"));
+    }
+  }
+
+  private static String write(final Consumer<CanonicalGsonWriter> body) {
+    final StringWriter out = new StringWriter();
+    final CanonicalGsonWriter w = new CanonicalGsonWriter(out);
+    body.accept(w);
+    w.flush();
+    return out.toString();
+  }
+}
@@ -0,0 +1,85 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.call;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+public class CompressedStreamTest {
+
+  @Test
+  public void testRoundTripWithJdkGzip() {
+    for (final byte[] data : new byte[][]{new byte[0], "{\"a\":1}".getBytes(), data(200000)}) {
+      assertThat(read(call(() -> new GZIPInputStream(new ByteArrayInputStream(write(data, true))))), is(data));
+      assertThat(read(new CompressedInputStream(new ByteArrayInputStream(gzip(data)), true)), is(data));
+    }
+  }
+
+  @Test
+  public void testTrailingData() {
+    final byte[] data = data(200000);
+    final byte[] member = gzip(data);
+    final byte[] twoMembers = Arrays.copyOf(member, 2 * member.length);
+    System.arraycopy(member, 0, twoMembers, member.length, member.length);
+    final byte[] garbage = Arrays.copyOf(member, member.length + 1);
+    // Small inputs leave the trailing bytes in the inflater's buffer, large ones in the underlying stream.
+    final byte[] small = gzip(new byte[]{1});
+    final byte[] smallGarbage = Arrays.copyOf(small, small.length + 3);
+    for (final byte[] compressed : new byte[][]{twoMembers, garbage, smallGarbage}) {
+      final ZipException e = assertThrows(
+        ZipException.class,
+        () -> new CompressedInputStream(new ByteArrayInputStream(compressed), true).readAllBytes()
+      );
+      assertThat(e.getMessage(), is("Trailing data after GZIP trailer"));
+    }
+  }
+
+  private static byte[] data(final int size) {
+    final Random random = new Random(40);
+    final byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte) ('a' + random.nextInt(4));
+    }
+    return data;
+  }
+
+  private static byte[] write(final byte[] data, final boolean gzip) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    call(() -> {
+      try (OutputStream out = new CompressedOutputStream(bytes, gzip)) {
+        out.write(data);
+      }
+    });
+    return bytes.toByteArray();
+  }
+
+  private static byte[] gzip(final byte[] data) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    call(() -> {
+      try (OutputStream out = new GZIPOutputStream(bytes)) {
+        out.write(data);
+      }
+    });
+    return bytes.toByteArray();
+  }
+
+  private static byte[] read(final InputStream in) {
+    return call(() -> {
+      try (InputStream i = in) {
+        return i.readAllBytes();
+      }
+    });
+  }
+}
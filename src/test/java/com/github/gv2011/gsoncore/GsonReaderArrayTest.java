@@ -0,0 +1,82 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class GsonReaderArrayTest {
+
+  @Test
+  public void testDoubles() {
+    final String[] numbers = {
+      "0", "-0", "0.0", "-0.0", "0e5", "-0E-5", "1", "-1", "0.5", "-1.5",
+      // Leading zeros of a fraction are not significant.
+      "0.000000000000000000000123456789012345", "-0.0000001",
+      // Exactly 15 significant digits take the fast path, 16 do not.
+      "123456789012345", "1.23456789012345", "999999999999999e-3",
+      "1234567890123456", "9007199254740993", "0.1234567890123456",
+      // Trailing zeros count as digits.
+      "1.000000000000000", "100000000000000000000",
+      // Exponents at the limits of the exact powers of ten.
+      "1e22", "1e23", "1e-22", "1e-23", "123e22", "123e-22", "9e+22", "1.5e-23",
+      "123456789012345e22", "123456789012345e-22",
+      // Huge exponents.
+      "1e308", "1.7976931348623157e308", "4.9e-324", "1e-400", "-1e-400", "0e99999999999",
+      "1e-99999999999"
+    };
+    final StringBuilder json = new StringBuilder("[");
+    for (final String number : numbers) {
+      json.append(number).append(',');
+    }
+    json.setCharAt(json.length() - 1, ']');
+    final double[] result = reader(json.toString(), false).readDoubleArray();
+    assertThat(result.length, is(numbers.length));
+    for (int i = 0; i < numbers.length; i++) {
+      assertThat(numbers[i], Double.doubleToRawLongBits(result[i]), is(Double.doubleToRawLongBits(Double.parseDouble(numbers[i]))));
+    }
+  }
+
+  @Test
+  public void testNonFiniteDoubles() {
+    assertThrows(MalformedJsonException.class, () -> reader("[1,1e400]", false).readDoubleArray());
+    assertThat(
+      reader("[1e400,-1e99999999999,NaN,\"Infinity\",'-1.5',2.5]", true).readDoubleArray(),
+      is(new double[]{
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, Double.POSITIVE_INFINITY, -1.5, 2.5
+      })
+    );
+  }
+
+  @Test
+  public void testFallbackElements() {
+    final GsonReader reader = reader("[[1,\"2\",3,'4.0',5],[1,\"2.5\",3,4],[],[-0,0]]", true);
+    reader.readArrayStart();
+    assertThat(reader.readLongArray(), is(new long[]{1, 2, 3, 4, 5}));
+    assertThat(reader.readDoubleArray(), is(new double[]{1, 2.5, 3, 4}));
+    assertThat(reader.getPath(), is("$[2]"));
+    assertThat(reader.readIntArray().length, is(0));
+    assertThat(reader.readLongArray(), is(new long[]{0, 0}));
+    reader.readArrayEnd();
+  }
+
+  @Test
+  public void testErrorPath() {
+    final NumberFormatException e = assertThrows(
+      NumberFormatException.class, () -> reader("[1.0,2,3,1.5,4]", false).readLongArray()
+    );
+    assertThat(e.getMessage(), endsWith("path $[3]"));
+    final NumberFormatException i = assertThrows(
+      NumberFormatException.class, () -> reader("[1,2,3000000000]", false).readIntArray()
+    );
+    assertThat(i.getMessage(), endsWith("path $[2]"));
+  }
+
+  private static GsonReader reader(final String json, final boolean lenient) {
+    return new GsonReader(new StringReader(json), lenient);
+  }
+}
@@ -0,0 +1,184 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonUtils;
+
+public class GsonReaderTest {
+
+  private final JsonFactory jf = JsonUtils.jsonFactory();
+
+  @Test
+  public void testResetAfterFailedDocument() {
+    final GsonReader reader = new GsonReader(jf, new StringReader("{\"a\":{\"b\":{\"c\":1,\"d\":2,\"e\":3}}}"), false);
+    reader.setLimits(JsonLimits.NONE.withMaxMembers(2));
+    final MalformedJsonException e = assertThrows(MalformedJsonException.class, reader::readNode);
+    assertThat(e.error(), is(JsonError.MEMBER_LIMIT));
+    assertThat(reader.getPath(), is("$.a.b.d"));
+
+    reader.reset(new StringReader("{\"x\":{\"y\":{\"z\":1,\"w\":2}}}"));
+    assertThat(reader.getPath(), is("$"));
+    reader.readObjectStart();
+    assertThat(reader.getPath(), is("$."));
+    assertThat(reader.readName(), is("x"));
+    reader.readObjectStart();
+    assertThat(reader.getPath(), is("$.x."));
+    assertThat(reader.readName(), is("y"));
+    assertThat(reader.readNode(), is(jf.deserialize("{\"z\":1,\"w\":2}")));
+    assertThat(reader.getPath(), is("$.x.y"));
+    reader.readObjectEnd();
+    reader.readObjectEnd();
+    assertThat(reader.hasNextDocument(), is(false));
+  }
+
+  @Test
+  public void testRawValueAcrossBufferRefills() {
+    final String[] values = {
+      "true", "false", "null", "-12345", "1.5e300", "\"a\\\"b\"", "{\"x\":[1,2]}", "[true,null]"
+    };
+    for (final String value : values) {
+      for (int padding = 1000; padding < 1040; padding++) {
+        final GsonReader reader = new GsonReader(
+          jf, new StringReader("[" + " ".repeat(padding) + value + "," + value + "]")
+        );
+        reader.readArrayStart();
+        assertThat(value + padding, reader.readRawValue(), is(value));
+        assertThat(value + padding, reader.readRawValue(), is(value));
+        reader.readArrayEnd();
+      }
+    }
+  }
+
+  @Test
+  public void testRawValueLenient() {
+    final GsonReader reader = new GsonReader(jf, new StringReader("['a',b,,NaN]"), true);
+    reader.readArrayStart();
+    assertThat(reader.readRawValue(), is("'a'"));
+    assertThat(reader.readRawValue(), is("b"));
+    assertThat(reader.readRawValue(), is("null"));
+    assertThat(reader.readRawValue(), is("NaN"));
+    reader.readArrayEnd();
+  }
+
+  @Test
+  public void testRawValueAfterFailedNumber() {
+    final GsonReader reader = new GsonReader(jf, new StringReader("[\"a\\\"b\",1]"));
+    reader.readArrayStart();
+    assertThrows(NumberFormatException.class, reader::nextLong);
+    assertThat(reader.readRawValue(), is("\"a\\\"b\""));
+    assertThat(reader.getPath(), is("$[1]"));
+    assertThat(reader.readRawValue(), is("1"));
+    reader.readArrayEnd();
+  }
+
+  @Test
+  public void testDocumentSizeLimit() {
+    final String json = "[\"" + "x".repeat(2500) + "\"]";
+    final JsonLimits limits = JsonLimits.NONE.withMaxDocumentSize(json.length());
+    final GsonReader exact = new GsonReader(jf, new StringReader(json));
+    exact.setLimits(limits);
+    assertThat(exact.readNode(), is(jf.deserialize(json)));
+
+    final GsonReader tooLong = new GsonReader(jf, new StringReader(json + " "));
+    tooLong.setLimits(limits.withMaxDocumentSize(json.length() - 1));
+    final MalformedJsonException e = assertThrows(MalformedJsonException.class, tooLong::readNode);
+    assertThat(e.error(), is(JsonError.DOCUMENT_LIMIT));
+    assertThat(e.offset(), is((long) json.length() - 1));
+  }
+
+  @Test
+  public void testDocumentSizeLimitPerDocument() {
+    final String json = "[\"" + "x".repeat(700) + "\"]";
+    final GsonReader reader = new GsonReader(jf, new StringReader((json + "\n").repeat(5)));
+    reader.setDocumentSequence(true);
+    reader.setLimits(JsonLimits.NONE.withMaxDocumentSize(json.length() + 1));
+    int count = 0;
+    while (reader.hasNextDocument()) {
+      assertThat(reader.readNode(), is(jf.deserialize(json)));
+      count++;
+    }
+    assertThat(count, is(5));
+
+    final GsonReader failing = new GsonReader(jf, new StringReader(json + "\n" + json.replace("x\"", "xx\"") + "\n" + json));
+    failing.setDocumentSequence(true);
+    failing.setLimits(JsonLimits.NONE.withMaxDocumentSize(json.length() + 1));
+    assertThat(failing.hasNextDocument(), is(true));
+    failing.readNode();
+    assertThat(failing.hasNextDocument(), is(true));
+    final MalformedJsonException e = assertThrows(MalformedJsonException.class, failing::readNode);
+    assertThat(e.error(), is(JsonError.DOCUMENT_LIMIT));
+  }
+
+  @Test
+  public void testRawSkipStrings() {
+    final String[] values = {
+      "\"]\"", "\"a}\\\"]\"", "\"\\\\\"", "\"\\\\\\\"[\"", "{\"a]\":\"}{\",\"b\":[\"[\",\"\\\"]\"]}", "[\"x\\u005d\"]"
+    };
+    for (final String value : values) {
+      for (final int padding : new int[]{0, 1015, 1020, 1022}) {
+        final String json = "[" + " ".repeat(padding) + "[" + value + "],1]";
+        final GsonReader reader = rawSkipping(json, false);
+        reader.readArrayStart();
+        reader.skipValue();
+        assertThat(value + padding, reader.getPath(), is("$[1]"));
+        assertThat(value + padding, reader.readRawValue(), is("1"));
+        reader.readArrayEnd();
+      }
+    }
+  }
+
+  @Test
+  public void testRawSkipLenient() {
+    final GsonReader reader = rawSkipping(
+      "[{a:'}]\"', /* ] } */ b:[1 // ]\n, 2 # }\n, a/b], c: '\\''}, 3]", true
+    );
+    reader.readArrayStart();
+    reader.skipValue();
+    assertThat(reader.readRawValue(), is("3"));
+    reader.readArrayEnd();
+
+    // Strict readers treat quotes and comment characters inside unquoted text literally.
+    final GsonReader strict = rawSkipping("[[\"a\",'],1]", false);
+    strict.readArrayStart();
+    strict.skipValue();
+    assertThat(strict.readRawValue(), is("1"));
+  }
+
+  @Test
+  public void testRawSkipDepthLimit() {
+    final String nested = "[[[[]]]]";
+    final GsonReader ok = rawSkipping("{\"a\":" + nested + "}", false);
+    ok.setLimits(JsonLimits.NONE.withMaxDepth(5));
+    ok.readObjectStart();
+    ok.readName();
+    ok.skipValue();
+    ok.readObjectEnd();
+
+    final GsonReader tooDeep = rawSkipping("{\"a\":" + nested + "}", false);
+    tooDeep.setLimits(JsonLimits.NONE.withMaxDepth(4));
+    tooDeep.readObjectStart();
+    tooDeep.readName();
+    final MalformedJsonException e = assertThrows(MalformedJsonException.class, tooDeep::skipValue);
+    assertThat(e.error(), is(JsonError.DEPTH_LIMIT));
+    assertThat(e.offset(), is(9L));
+
+    final GsonReader unterminated = rawSkipping("[[\"]\"", false);
+    unterminated.readArrayStart();
+    assertThat(
+      assertThrows(MalformedJsonException.class, unterminated::skipValue).error(), is(JsonError.UNTERMINATED_VALUE)
+    );
+  }
+
+  private GsonReader rawSkipping(final String json, final boolean lenient) {
+    final GsonReader reader = new GsonReader(jf, new StringReader(json), lenient);
+    reader.setRawSkip(true);
+    return reader;
+  }
+}
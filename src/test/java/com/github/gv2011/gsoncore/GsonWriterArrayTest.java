@@ -0,0 +1,222 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+import com.github.gv2011.util.num.NumUtils;
+
+public class GsonWriterArrayTest {
+
+  @Test
+  public void testEcmaNotation() {
+    assertThat(write("", w -> w.writeArray(new double[]{
+      1e21, 1e20, 1e-7, 1e-6, 0.5, -0.0, 0.0, -1.5, 0.1 + 0.2, 123e-20,
+      9007199254740994.0, Double.MIN_VALUE, 2e-323, 1e-322, Double.MAX_VALUE, -Double.MIN_NORMAL
+    })), is(
+      "[1e+21,100000000000000000000,1e-7,0.000001,0.5,0,0,-1.5,0.30000000000000004,1.23e-18,"
+      + "9007199254740994,5e-324,2e-323,1e-322,1.7976931348623157e+308,-2.2250738585072014e-308]"
+    ));
+  }
+
+  @Test
+  public void testBoundaries() {
+    final Object[][] cases = {
+      {Double.MIN_VALUE, "5e-324"},
+      {2 * Double.MIN_VALUE, "1e-323"},
+      {3 * Double.MIN_VALUE, "1.5e-323"},
+      {Math.nextDown(Double.MIN_NORMAL), "2.225073858507201e-308"},
+      {Double.MIN_NORMAL, "2.2250738585072014e-308"},
+      {Math.nextUp(Double.MIN_NORMAL), "2.225073858507202e-308"},
+      {Double.MAX_VALUE, "1.7976931348623157e+308"},
+      {Math.nextDown(1e21), "999999999999999900000"},
+      {1e21, "1e+21"},
+      {Math.nextUp(1e21), "1.0000000000000001e+21"},
+      {1.5e21, "1.5e+21"},
+      {123456789012345680000.0, "123456789012345680000"},
+      {Math.nextDown(1e-6), "9.999999999999997e-7"},
+      {1e-6, "0.000001"},
+      {1.5e-6, "0.0000015"},
+      {1e-7, "1e-7"},
+      {1.5e-7, "1.5e-7"},
+      {0x1p-1022 * 3, "6.675221575521604e-308"},
+      {0x1p60, "1152921504606847000"},
+      {0x1p70, "1.1805916207174113e+21"},
+    };
+    for (final Object[] c : cases) {
+      final double value = (Double) c[0];
+      assertThat(Double.toString(value), write("", w -> w.writeArray(new double[]{value, -value})), is(
+        "[" + c[1] + ",-" + c[1] + "]"
+      ));
+      assertThat(Double.toString(value), write("", w -> w.writeDecimal(NumUtils.num(shortest(value)))), is(c[1]));
+    }
+  }
+
+  @Test
+  public void testPowersOfTwo() {
+    // The doubles below a power of two are closer together than above it.
+    final double[] values = new double[2 * (1023 + 1074 + 1)];
+    for (int e = -1074; e <= 1023; e++) {
+      final double value = Math.scalb(1.0, e);
+      values[2 * (e + 1074)] = value;
+      values[2 * (e + 1074) + 1] = Math.nextDown(value);
+    }
+    assertThat(write("", w -> w.writeArray(values)), is(write("", w -> {
+      w.beginArray();
+      for (final double value : values) {
+        w.writeDecimal(NumUtils.num(shortest(value)));
+      }
+      w.endArray();
+    })));
+  }
+
+  @Test
+  public void testDoublesLikeDecimal() {
+    final Random random = new Random(49);
+    final double[] values = new double[20000];
+    for (int i = 0; i < values.length; i++) {
+      switch (i % 5) {
+      case 0:
+        values[i] = Double.longBitsToDouble(random.nextLong());
+        break;
+      case 1:
+        values[i] = random.nextDouble() * Math.pow(10, random.nextInt(50) - 25);
+        break;
+      case 2:
+        values[i] = -random.nextInt(1000000) / 1000.0;
+        break;
+      case 3:
+        values[i] = Double.MIN_VALUE * random.nextInt(i < 1000 ? 1000 : Integer.MAX_VALUE);
+        break;
+      default:
+        values[i] = (double) random.nextLong();
+      }
+      if (Double.isNaN(values[i]) || Double.isInfinite(values[i])) {
+        values[i] = i;
+      }
+    }
+    final String expected = write("", w -> {
+      w.beginArray();
+      for (final double value : values) {
+        w.writeDecimal(NumUtils.num(shortest(value)));
+      }
+      w.endArray();
+    });
+    assertThat(write("", w -> w.writeArray(values)), is(expected));
+    assertThat(write("", w -> w.writeArray(DoubleStream.of(values))), is(expected));
+  }
+
+  @Test
+  public void testLongs() {
+    final long[] values = {0, -1, 1, 9, 10, -10, 999999999999999999L, 1000000000000000000L, Long.MAX_VALUE, Long.MIN_VALUE};
+    final String expected = write("", w -> {
+      w.beginArray();
+      for (final long value : values) {
+        w.writeDecimal(NumUtils.intg(value));
+      }
+      w.endArray();
+    });
+    assertThat(expected, is(
+      "[0,-1,1,9,10,-10,999999999999999999,1000000000000000000,9223372036854775807,-9223372036854775808]"
+    ));
+    assertThat(write("", w -> w.writeArray(values)), is(expected));
+    assertThat(write("", w -> w.writeArray(LongStream.of(values))), is(expected));
+    assertThat(write("", w -> w.writeArray(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE})), is(
+      "[-2147483648,0,2147483647]"
+    ));
+  }
+
+  @Test
+  public void testIndented() {
+    final String expected = write("  ", w -> {
+      w.beginObject();
+      w.name("a");
+      w.beginArray();
+      w.writeLong(1);
+      w.writeDecimal(NumUtils.parse("2.5"));
+      w.endArray();
+      w.name("b");
+      w.beginArray();
+      w.endArray();
+      w.name("c");
+      w.beginArray();
+      w.beginArray();
+      w.writeLong(3);
+      w.endArray();
+      w.writeLong(4);
+      w.endArray();
+      w.endObject();
+    });
+    assertThat(write("  ", w -> {
+      w.beginObject();
+      w.name("a");
+      w.writeArray(new double[]{1, 2.5});
+      w.name("b");
+      w.writeArray(new long[0]);
+      w.name("c");
+      w.beginArray();
+      w.writeArray(new int[]{3});
+      w.writeLong(4);
+      w.endArray();
+      w.endObject();
+    }), is(expected));
+  }
+
+  @Test
+  public void testNonFinite() {
+    final double[] values = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    assertThat(write(true, "", w -> w.writeArray(values)), is("[NaN,Infinity,-Infinity]"));
+    final GsonReader reader = new GsonReader(new StringReader("[NaN,Infinity,-Infinity]"), true);
+    assertThat(reader.readDoubleArray(), is(values));
+    for (final double value : values) {
+      assertThrows(IllegalArgumentException.class, () -> write("", w -> w.writeArray(new double[]{value})));
+    }
+  }
+
+  /**
+   * Returns the decimal with the fewest digits that rounds to {@code value},
+   * the closest one if there are several, found by trying the decimals just below
+   * and above {@code value} for every precision. Independent of {@link
+   * Double#toString(double)}.
+   */
+  private static BigDecimal shortest(final double value) {
+    final BigDecimal exact = new BigDecimal(value);
+    for (int precision = 1; ; precision++) {
+      final BigDecimal below = exact.round(new MathContext(precision, RoundingMode.FLOOR));
+      final BigDecimal above = exact.round(new MathContext(precision, RoundingMode.CEILING));
+      final boolean belowMatches = below.doubleValue() == value;
+      final boolean aboveMatches = above.doubleValue() == value;
+      if (belowMatches && aboveMatches) {
+        final int c = exact.subtract(below).compareTo(above.subtract(exact));
+        // ECMAScript breaks ties towards the even digit.
+        return c < 0 || (c == 0 && !below.unscaledValue().testBit(0)) ? below : above;
+      } else if (belowMatches || aboveMatches) {
+        return belowMatches ? below : above;
+      }
+    }
+  }
+
+  private static String write(final String indent, final Consumer<GsonWriter> body) {
+    return write(false, indent, body);
+  }
+
+  private static String write(final boolean lenient, final String indent, final Consumer<GsonWriter> body) {
+    final StringWriter out = new StringWriter();
+    final GsonWriter w = new GsonWriter(out, indent, lenient, false, false);
+    body.accept(w);
+    w.flush();
+    return out.toString();
+  }
+}
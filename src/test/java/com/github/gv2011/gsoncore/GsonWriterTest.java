@@ -0,0 +1,33 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class GsonWriterTest {
+
+  @Test
+  public void testResetPassesOnBufferedOutput() {
+    final StringWriter first = new StringWriter();
+    final GsonWriter w = new GsonWriter(first, "");
+    w.beginArray();
+    w.writeLong(1);
+    w.writeString("x");
+    assertThat(first.toString(), is(""));
+    final StringWriter second = new StringWriter();
+    w.reset(second);
+    assertThat(first.toString(), is("[1,\"x\""));
+    w.beginObject();
+    w.name("a");
+    w.writeLong(2);
+    w.endObject();
+    assertThat(second.toString(), is("{\"a\":2}"));
+    w.close();
+    w.reset(first);
+    w.writeBoolean(true);
+    assertThat(first.toString(), is("[1,\"x\"true"));
+  }
+}
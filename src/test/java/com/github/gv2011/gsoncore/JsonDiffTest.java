@@ -0,0 +1,225 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.json.JsonUtils;
+
+public class JsonDiffTest {
+
+  private static final String[] NAMES = {"a", "b", "c", "d/e", "f~g", ""};
+
+  private final JsonFactory jf = JsonUtils.jsonFactory();
+
+  @Test
+  public void testApplyDiff() {
+    final Random random = new Random(46);
+    for (int i = 0; i < 2000; i++) {
+      final Object source = randomValue(random, 3);
+      // Half of the targets are derived from the source, so that they share most of their structure.
+      final Object target = random.nextBoolean() ? randomValue(random, 3) : mutate(random, source, 3);
+      final String sourceJson = toJson(source);
+      final String targetJson = toJson(target);
+      final String patch = diff(sourceJson, targetJson);
+      assertThat(sourceJson + " " + targetJson + " " + patch,
+        jf.deserialize(toJson(apply(patch, sourceJson))), is(jf.deserialize(targetJson))
+      );
+      assertThat(diff(sourceJson, sourceJson), is("[]"));
+    }
+  }
+
+  private String diff(final String source, final String target) {
+    final StringWriter out = new StringWriter();
+    final GsonWriter patch = new GsonWriter(out, "", false, false, true);
+    JsonDiff.diff(new GsonReader(jf, new StringReader(source)), new GsonReader(jf, new StringReader(target)), patch);
+    patch.flush();
+    return out.toString();
+  }
+
+  /**
+   * A minimal RFC 6902 implementation for the operations produced by {@link JsonDiff}.
+   */
+  private Object apply(final String patch, final String document) {
+    Object root = mutable(jf.deserialize(document));
+    for (final JsonNode operation : jf.deserialize(patch).asList()) {
+      final Map<String, JsonNode> op = operation.asObject();
+      final String path = op.get("path").asString();
+      final String kind = op.get("op").asString();
+      if (path.isEmpty()) {
+        assertThat(kind, is("replace"));
+        root = mutable(op.get("value"));
+        continue;
+      }
+      final String[] tokens = path.substring(1).split("/", -1);
+      Object parent = root;
+      for (int i = 0; i < tokens.length - 1; i++) {
+        parent = child(parent, unescape(tokens[i]));
+      }
+      final String last = unescape(tokens[tokens.length - 1]);
+      if (parent instanceof Map) {
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> object = (Map<String, Object>) parent;
+        assertThat(path, object.containsKey(last), is(!kind.equals("add")));
+        if (kind.equals("remove")) {
+          object.remove(last);
+        } else {
+          object.put(last, mutable(op.get("value")));
+        }
+      } else {
+        @SuppressWarnings("unchecked")
+        final List<Object> array = (List<Object>) parent;
+        final int index = Integer.parseInt(last);
+        switch (kind) {
+        case "add":
+          array.add(index, mutable(op.get("value")));
+          break;
+        case "remove":
+          array.remove(index);
+          break;
+        default:
+          array.set(index, mutable(op.get("value")));
+        }
+      }
+    }
+    return root;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object child(final Object parent, final String token) {
+    return parent instanceof Map
+      ? ((Map<String, Object>) parent).get(token)
+      : ((List<Object>) parent).get(Integer.parseInt(token))
+    ;
+  }
+
+  private static String unescape(final String token) {
+    return token.replace("~1", "/").replace("~0", "~");
+  }
+
+  /**
+   * Converts objects and arrays into modifiable maps and lists, primitives
+   * stay {@link JsonNode}s.
+   */
+  private static Object mutable(final JsonNode node) {
+    switch (node.jsonNodeType()) {
+    case OBJECT: {
+      final Map<String, Object> result = new LinkedHashMap<>();
+      node.asObject().forEach((name, value) -> result.put(name, mutable(value)));
+      return result;
+    }
+    case LIST: {
+      final List<Object> result = new ArrayList<>();
+      node.asList().forEach(element -> result.add(mutable(element)));
+      return result;
+    }
+    default:
+      return node;
+    }
+  }
+
+  private Object randomValue(final Random random, final int depth) {
+    switch (random.nextInt(depth > 0 ? 7 : 5)) {
+    case 0:
+      return jf.deserialize("null");
+    case 1:
+      return jf.deserialize(random.nextBoolean() ? "true" : "false");
+    case 2:
+      return jf.deserialize(Integer.toString(random.nextInt(4)));
+    case 3:
+      return jf.deserialize(random.nextInt(3) + ".5");
+    case 4:
+      return jf.deserialize("\"" + NAMES[random.nextInt(NAMES.length)] + "\"");
+    case 5: {
+      final List<Object> result = new ArrayList<>();
+      for (int i = random.nextInt(4); i > 0; i--) {
+        result.add(randomValue(random, depth - 1));
+      }
+      return result;
+    }
+    default: {
+      final List<String> names = new ArrayList<>(List.of(NAMES));
+      Collections.shuffle(names, random);
+      final Map<String, Object> result = new LinkedHashMap<>();
+      for (final String name : names.subList(0, random.nextInt(names.size()))) {
+        result.put(name, randomValue(random, depth - 1));
+      }
+      return result;
+    }
+    }
+  }
+
+  /**
+   * Returns a copy of {@code value} with a few random changes.
+   */
+  @SuppressWarnings("unchecked")
+  private Object mutate(final Random random, final Object value, final int depth) {
+    if (random.nextInt(4) == 0) {
+      return randomValue(random, depth);
+    } else if (value instanceof Map) {
+      final Map<String, Object> result = new LinkedHashMap<>();
+      for (final Map.Entry<String, Object> member : ((Map<String, Object>) value).entrySet()) {
+        if (random.nextInt(5) != 0) {
+          result.put(member.getKey(), mutate(random, member.getValue(), depth - 1));
+        }
+      }
+      if (random.nextInt(3) == 0) {
+        result.put(NAMES[random.nextInt(NAMES.length)], randomValue(random, depth - 1));
+      }
+      return result;
+    } else if (value instanceof List) {
+      final List<Object> result = new ArrayList<>();
+      for (final Object element : (List<Object>) value) {
+        if (random.nextInt(5) != 0) {
+          result.add(mutate(random, element, depth - 1));
+        }
+      }
+      if (random.nextInt(3) == 0) {
+        result.add(randomValue(random, depth - 1));
+      }
+      return result;
+    } else {
+      return value;
+    }
+  }
+
+  private static String toJson(final Object value) {
+    final StringWriter out = new StringWriter();
+    final GsonWriter writer = new GsonWriter(out, "", false, false, true);
+    write(value, writer);
+    writer.flush();
+    return out.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void write(final Object value, final GsonWriter out) {
+    if (value instanceof Map) {
+      out.beginObject();
+      for (final Map.Entry<String, Object> member : ((Map<String, Object>) value).entrySet()) {
+        out.name(member.getKey());
+        write(member.getValue(), out);
+      }
+      out.endObject();
+    } else if (value instanceof List) {
+      out.beginArray();
+      for (final Object element : (List<Object>) value) {
+        write(element, out);
+      }
+      out.endArray();
+    } else {
+      JsonCopy.write((JsonNode) value, out);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.json.JsonUtils;
+
+public class JsonProjectionTest {
+
+  private final JsonFactory jf = JsonUtils.jsonFactory();
+
+  @Test
+  public void testSelect() {
+    assertThat(
+      read("{\"a\":{\"id\":1,\"x\":[1,2]},\"items\":[{\"price\":2},{\"price\":3,\"n\":0}]}", "$.a.id", "$.items[*].price"),
+      is(values("$.a.id", "1", "$.items[0].price", "2", "$.items[1].price", "3"))
+    );
+  }
+
+  @Test
+  public void testOverlappingPaths() {
+    assertThat(
+      read("{\"a\":{\"b\":[1,{\"c\":2}],\"d\":3},\"e\":4}", "$.a", "$.a.b[1].c", "$.a.*"),
+      is(values(
+        "$.a", "{\"b\":[1,{\"c\":2}],\"d\":3}", "$.a.b", "[1,{\"c\":2}]", "$.a.b[1].c", "2", "$.a.d", "3"
+      ))
+    );
+    assertThat(
+      read("[[1,2],[3]]", "$[*]", "$[*][0]"),
+      is(values("$[0]", "[1,2]", "$[0][0]", "1", "$[1]", "[3]", "$[1][0]", "3"))
+    );
+  }
+
+  @Test
+  public void testQuotedNames() {
+    final String json = "{\"a.b\":1,\"a\":{\"b\":2},\"*\":3,\"x[0]\":4,\"it's\":5}";
+    assertThat(read(json, "$['a.b']"), is(values("$['a.b']", "1")));
+    assertThat(read(json, "$.a.b"), is(values("$.a.b", "2")));
+    assertThat(read(json, "$['*']"), is(values("$['*']", "3")));
+    assertThat(read(json, "$['x[0]']", "$['it's']"), is(values("$['x[0]']", "4", "$['it's']", "5")));
+    assertThat(JsonProjection.concretePath("$['a.b']"), is("$['a.b']"));
+    assertThat(JsonProjection.concretePath("$.a.b"), is("$.a.b"));
+    assertThat(JsonProjection.concretePath("$['a'].b[2]"), is("$.a.b[2]"));
+    assertThat(JsonProjection.concretePath("$['*']"), is("$['*']"));
+  }
+
+  private Map<String, JsonNode> read(final String json, final String... paths) {
+    final Map<String, JsonNode> result = new HashMap<>();
+    new GsonReader(jf, new StringReader(json)).readProjected(JsonProjection.of(paths), (path, value) -> {
+      assertThat(path, result.put(path, value), is((JsonNode) null));
+    });
+    return result;
+  }
+
+  private Map<String, JsonNode> values(final String... pathsAndValues) {
+    final Map<String, JsonNode> result = new HashMap<>();
+    for (int i = 0; i < pathsAndValues.length; i += 2) {
+      result.put(pathsAndValues[i], jf.deserialize(pathsAndValues[i + 1]));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,160 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.json.JsonUtils;
+
+public class JsonPublisherTest {
+
+  private final JsonFactory jf = JsonUtils.jsonFactory();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testSequenceWithDemandOfOne() throws Exception {
+    final List<JsonNode> values = values();
+    final StringBuilder json = new StringBuilder();
+    values.forEach(v -> json.append(jf.serialize(v).replace("\n", "")).append('\n'));
+    assertThat(roundTrip(json.toString(), JsonPublisher::ofSequence), is(values));
+  }
+
+  @Test
+  public void testArrayWithDemandOfOne() throws Exception {
+    final List<JsonNode> values = values();
+    final StringBuilder json = new StringBuilder("[");
+    values.forEach(v -> json.append(json.length() > 1 ? "," : "").append(jf.serialize(v)));
+    assertThat(roundTrip(json.append(']').toString(), JsonPublisher::ofArray), is(values));
+  }
+
+  private List<JsonNode> values() {
+    final List<JsonNode> values = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      values.add(jf.deserialize("{\"id\":" + i + ",\"text\":\"ä€😀 " + "x".repeat(i % 50) + "\",\"list\":[" + i + ",null]}"));
+    }
+    return values;
+  }
+
+  /**
+   * Publishes {@code json} in small chunks to a {@link JsonByteSubscriber}
+   * with a prefetch of one, and reads it back through a {@link JsonPublisher}
+   * whose subscriber requests one value at a time from another thread.
+   */
+  private List<JsonNode> roundTrip(
+    final String json, final BiFunction<GsonReader, ExecutorService, JsonPublisher> publisher
+  ) throws Exception {
+    final ChunkPublisher bytes = new ChunkPublisher(json.getBytes(StandardCharsets.UTF_8));
+    final JsonByteSubscriber body = new JsonByteSubscriber(1);
+    bytes.subscribe(body);
+    final List<JsonNode> result = new ArrayList<>();
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    publisher.apply(body.newReader(jf), executor).subscribe(new Flow.Subscriber<JsonNode>() {
+      private Flow.Subscription subscription;
+      private final AtomicLong outstanding = new AtomicLong();
+
+      @Override
+      public void onSubscribe(final Flow.Subscription subscription) {
+        this.subscription = subscription;
+        request();
+      }
+
+      @Override
+      public void onNext(final JsonNode item) {
+        if (outstanding.decrementAndGet() < 0) {
+          done.completeExceptionally(new AssertionError("Value without demand."));
+        }
+        result.add(item);
+        CompletableFuture.runAsync(this::request, executor);
+      }
+
+      private void request() {
+        outstanding.incrementAndGet();
+        subscription.request(1);
+      }
+
+      @Override
+      public void onError(final Throwable e) {
+        done.completeExceptionally(e);
+      }
+
+      @Override
+      public void onComplete() {
+        done.complete(null);
+      }
+    });
+    done.get(30, TimeUnit.SECONDS);
+    assertThat(bytes.maxDemand, is(1L));
+    return result;
+  }
+
+  /**
+   * Emits chunks of 0 to 6 bytes, splitting multi-byte characters, and only
+   * as many as have been requested.
+   */
+  private static final class ChunkPublisher implements Flow.Publisher<ByteBuffer> {
+    private final byte[] data;
+    private int pos = 0;
+    private int count = 0;
+    private long demand = 0;
+    private long maxDemand = 0;
+    private boolean emitting = false;
+
+    private ChunkPublisher(final byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(final long n) {
+          synchronized (ChunkPublisher.this) {
+            demand += n;
+            maxDemand = Math.max(maxDemand, demand);
+            if (emitting) {
+              return;
+            }
+            emitting = true;
+            while (demand > 0 && pos <= data.length) {
+              demand--;
+              if (pos == data.length) {
+                pos++;
+                subscriber.onComplete();
+              } else {
+                final int end = Math.min(data.length, pos + count++ % 7);
+                subscriber.onNext(ByteBuffer.wrap(Arrays.copyOfRange(data, pos, end)));
+                pos = end;
+              }
+            }
+            emitting = false;
+          }
+        }
+
+        @Override
+        public void cancel() {}
+      });
+    }
+  }
+}
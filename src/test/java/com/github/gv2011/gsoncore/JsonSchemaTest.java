@@ -0,0 +1,109 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.gsoncore.JsonSchema.field;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.github.gv2011.gsoncore.JsonSchema.Type;
+
+public class JsonSchemaTest {
+
+  private final JsonSchema schema = JsonSchema.of(
+    field("b", Type.BOOLEAN), field("i", Type.INT), field("l", Type.LONG),
+    field("d", Type.DOUBLE), field("s", Type.STRING), field("é\"", Type.STRING)
+  );
+
+  @Test
+  public void testReadObjects() {
+    final GsonReader reader = reader(
+      "[{\"b\":true,\"x\":{\"s\":1,\"y\":[{}]},\"i\":-7,\"l\":9007199254740993,\"d\":1.5,\"s\":\"v\",\"\\u00e9\\\"\":\"e\"},"
+      + "{\"i\":2,\"s\":null,\"unknown\":[1,2]}]"
+    );
+    final JsonSchema.Values values = schema.newValues();
+    reader.readArrayStart();
+    reader.readObject(schema, values);
+    assertThat(values.getBoolean(0), is(true));
+    assertThat(values.getInt(1), is(-7));
+    assertThat(values.getLong(2), is(9007199254740993L));
+    assertThat(values.getDouble(3), is(1.5));
+    assertThat(values.getString(4), is("v"));
+    assertThat(values.getString(5), is("e"));
+    reader.readObject(schema, values);
+    assertThat(values.getInt(1), is(2));
+    for (final int slot : new int[]{0, 2, 3, 4, 5}) {
+      assertThat(values.isPresent(slot), is(false));
+    }
+    reader.readArrayEnd();
+    assertThat(reader.hasNextDocument(), is(false));
+  }
+
+  @Test
+  public void testNamesAcrossBufferRefills() {
+    // The reader buffer holds 1024 characters, so some names are split by a refill.
+    final StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 500; i++) {
+      json.append("{\"s\":\"").append("x".repeat(i % 13)).append("\",\"l\":").append(i).append("},");
+    }
+    json.setCharAt(json.length() - 1, ']');
+    final GsonReader reader = reader(json.toString());
+    final JsonSchema.Values values = schema.newValues();
+    reader.readArrayStart();
+    for (int i = 0; i < 500; i++) {
+      reader.readObject(schema, values);
+      assertThat(values.getString(4), is("x".repeat(i % 13)));
+      assertThat(values.getLong(2), is((long) i));
+    }
+    reader.readArrayEnd();
+  }
+
+  @Test
+  public void testReadName() {
+    final GsonReader reader = reader("{\"l\":1,\"other\":2,\"s\":3}");
+    reader.readObjectStart();
+    assertThat(reader.readName(schema), is(2));
+    assertThat(reader.getPath(), is("$.l"));
+    reader.skipValue();
+    assertThat(reader.readName(schema), is(-1));
+    assertThat(reader.getPath(), is("$.other"));
+    reader.skipValue();
+    assertThat(reader.readName(schema), is(4));
+  }
+
+  @Test
+  public void testNameLengthLimit() {
+    for (final String name : new String[]{"abcdefghi", "abcdefgh\\u0069"}) {
+      final GsonReader reader = reader("{\"" + name + "\":1}");
+      reader.setLimits(JsonLimits.NONE.withMaxStringLength(8));
+      final MalformedJsonException e = assertThrows(
+        MalformedJsonException.class, () -> reader.readObject(schema, schema.newValues())
+      );
+      assertThat(e.error(), is(JsonError.STRING_LIMIT));
+    }
+    final GsonReader reader = reader("{\"abcdefgh\":1,\"l\":2}");
+    reader.setLimits(JsonLimits.NONE.withMaxStringLength(8));
+    final JsonSchema.Values values = schema.newValues();
+    reader.readObject(schema, values);
+    assertThat(values.getLong(2), is(2L));
+  }
+
+  @Test
+  public void testErrors() {
+    assertThrows(IllegalArgumentException.class, () -> reader("{}").readObject(schema, JsonSchema.of().newValues()));
+    assertThrows(IllegalStateException.class, () -> reader("{\"b\":1}").readObject(schema, schema.newValues()));
+    assertThrows(NumberFormatException.class, () -> reader("{\"i\":3000000000}").readObject(schema, schema.newValues()));
+    final JsonSchema.Values values = schema.newValues();
+    reader("{\"l\":1}").readObject(schema, values);
+    assertThrows(IllegalStateException.class, () -> values.getInt(1));
+    assertThrows(IllegalArgumentException.class, () -> values.getInt(2));
+    assertThrows(IllegalArgumentException.class, () -> JsonSchema.of(field("a", Type.INT), field("a", Type.LONG)));
+  }
+
+  private static GsonReader reader(final String json) {
+    return new GsonReader(new StringReader(json), false);
+  }
+}
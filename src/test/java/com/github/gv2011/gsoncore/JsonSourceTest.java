@@ -0,0 +1,104 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.call;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class JsonSourceTest {
+
+  private static final String TEXT = "a😀bé😁";
+
+  @Test
+  public void testSurrogatePairsReadOneByOne() {
+    final byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+    assertThat(readAll(JsonSource.of(new ByteArrayInputStream(bytes)), 1), is(TEXT));
+    assertThat(readAll(JsonSource.of(ByteBuffer.wrap(bytes)), 1), is(TEXT));
+    assertThat(readAll(JsonSource.of(trickle(bytes)), 1), is(TEXT));
+  }
+
+  @Test
+  public void testSurrogatePairSpillIntoLargerRead() {
+    final JsonSource source = JsonSource.of(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)));
+    final char[] buffer = new char[16];
+    assertThat(source.read(buffer, 0, 1), is(1));
+    assertThat(source.read(buffer, 1, 1), is(1));
+    // The low surrogate is returned on its own before decoding continues.
+    assertThat(source.read(buffer, 2, 14), is(1));
+    assertThat(source.read(buffer, 3, 13), is(TEXT.length() - 3));
+    assertThat(source.read(buffer, 0, 16), is(-1));
+    assertThat(new String(buffer, 0, 3), is(TEXT.substring(0, 3)));
+  }
+
+  @Test
+  public void testOneEmptyRead() {
+    final JsonSource reader = JsonSource.of(new Reader() {
+      private final Reader delegate = new StringReader(TEXT);
+      private boolean empty = true;
+      @Override
+      public int read(final char[] cbuf, final int off, final int len) {
+        empty = !empty;
+        return empty ? 0 : call(() -> delegate.read(cbuf, off, Math.min(len, 1)));
+      }
+      @Override
+      public void close() {}
+    });
+    assertThat(readAll(reader, 8), is(TEXT));
+  }
+
+  @Test
+  public void testEmptyReadsDoNotSpin() {
+    final JsonSource reader = JsonSource.of(new Reader() {
+      @Override
+      public int read(final char[] cbuf, final int off, final int len) {
+        return 0;
+      }
+      @Override
+      public void close() {}
+    });
+    assertThrows(RuntimeException.class, () -> reader.read(new char[8], 0, 8));
+    final JsonSource stream = JsonSource.of(new InputStream() {
+      @Override
+      public int read() {
+        return 0;
+      }
+      @Override
+      public int read(final byte[] b, final int off, final int len) {
+        return 0;
+      }
+    });
+    assertThrows(RuntimeException.class, () -> stream.read(new char[8], 0, 8));
+  }
+
+  /**
+   * Returns one byte per read, so that surrogate pairs are split across reads.
+   */
+  private static InputStream trickle(final byte[] bytes) {
+    return new ByteArrayInputStream(bytes) {
+      @Override
+      public synchronized int read(final byte[] b, final int off, final int len) {
+        return super.read(b, off, Math.min(len, 1));
+      }
+    };
+  }
+
+  private static String readAll(final JsonSource source, final int chunk) {
+    final StringBuilder result = new StringBuilder();
+    final char[] buffer = new char[chunk];
+    int n;
+    while ((n = source.read(buffer, 0, chunk)) != -1) {
+      assertThat(n > 0, is(true));
+      result.append(buffer, 0, n);
+    }
+    return result.toString();
+  }
+}
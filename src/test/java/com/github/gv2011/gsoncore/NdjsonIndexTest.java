@@ -0,0 +1,117 @@
+package com.github.gv2011.gsoncore;
+
+import static com.github.gv2011.util.ex.Exceptions.call;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonNode;
+import com.github.gv2011.util.json.JsonUtils;
+
+public class NdjsonIndexTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final JsonFactory jf = JsonUtils.jsonFactory();
+
+  @Test
+  public void testLookupAcrossChunks() {
+    final List<String> lines = new ArrayList<>();
+    final StringBuilder data = new StringBuilder();
+    final String padding = "x".repeat(997);
+    for (int i = 0; i < 300; i++) {
+      // One record is longer than the scan buffer, the others cross its boundaries at various positions.
+      final String text = i == 150 ? "y".repeat(200000) : padding.substring(i);
+      final String line = "{\"id\":" + i + ",\"name\":\"n" + i + "\",\"text\":\"" + text + "\"}";
+      lines.add(line);
+      data.append(line).append('\n');
+    }
+    final Path file = write(data.toString());
+    final Path indexFile = folder.getRoot().toPath().resolve("index");
+    NdjsonIndex.build(jf, file, indexFile, "$.id", "$.name").close();
+    try (NdjsonIndex index = NdjsonIndex.open(jf, file, indexFile)) {
+      assertThat(index.size(), is(lines.size()));
+      long offset = 0;
+      for (int i = 0; i < lines.size(); i++) {
+        assertThat(index.offset(i), is(offset));
+        offset += lines.get(i).length() + 1;
+        assertThat(lookup(index, "$.id", i), is(List.of(jf.deserialize(lines.get(i)))));
+        assertThat(lookup(index, "$.name", "n" + i), is(List.of(jf.deserialize(lines.get(i)))));
+      }
+      final List<JsonNode> range = new ArrayList<>();
+      index.range("$.id", 148, 152.0, range::add);
+      assertThat(range, is(List.of(
+        jf.deserialize(lines.get(148)), jf.deserialize(lines.get(149)),
+        jf.deserialize(lines.get(150)), jf.deserialize(lines.get(151))
+      )));
+    }
+  }
+
+  @Test
+  public void testLineEndings() {
+    final Path file = write(
+      "\r\n{\"id\":\"a\"}\r\n  \r\n\n{\"id\":\"b\",\"n\":1}\r\n\t\n{\"id\":\"a\",\"n\":2}"
+    );
+    try (NdjsonIndex index = NdjsonIndex.build(jf, file, folder.getRoot().toPath().resolve("index"), "$.id")) {
+      assertThat(index.size(), is(3));
+      assertThat(index.offset(0), is(2L));
+      assertThat(lookup(index, "$.id", "a"), is(List.of(
+        jf.deserialize("{\"id\":\"a\"}"), jf.deserialize("{\"id\":\"a\",\"n\":2}")
+      )));
+      assertThat(lookup(index, "$.id", "b"), is(List.of(jf.deserialize("{\"id\":\"b\",\"n\":1}"))));
+      assertThat(lookup(index, "$.id", "c"), is(List.of()));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStaleIndex() throws IOException {
+    final Path file = write("{\"id\":1}\n");
+    final Path indexFile = folder.getRoot().toPath().resolve("index");
+    NdjsonIndex.build(jf, file, indexFile, "$.id").close();
+    Files.write(file, "{\"id\":2}\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    NdjsonIndex.open(jf, file, indexFile).close();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullKey() {
+    try (NdjsonIndex index = NdjsonIndex.build(jf, write("{\"id\":null}\n"), folder.getRoot().toPath().resolve("index"), "$.id")) {
+      index.lookup("$.id", null, r -> {});
+    }
+  }
+
+  @Test
+  public void testNonFiniteKey() {
+    try (NdjsonIndex index = NdjsonIndex.build(jf, write("{\"id\":1}\n"), folder.getRoot().toPath().resolve("index"), "$.id")) {
+      for (final double key : new double[]{Double.NaN, Double.POSITIVE_INFINITY}) {
+        final IllegalArgumentException e = assertThrows(
+          IllegalArgumentException.class, () -> index.range("$.id", 0, key, r -> {})
+        );
+        assertThat(e.getMessage(), is("Numeric keys must be finite: " + key));
+      }
+    }
+  }
+
+  private Path write(final String data) {
+    return call(() -> Files.write(folder.newFile().toPath(), data.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static List<JsonNode> lookup(final NdjsonIndex index, final String keyPath, final Object key) {
+    final List<JsonNode> result = new ArrayList<>();
+    index.lookup(keyPath, key, result::add);
+    return result;
+  }
+}
@@ -0,0 +1,58 @@
+package com.github.gv2011.gsoncore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.github.gv2011.util.json.JsonFactory;
+import com.github.gv2011.util.json.JsonUtils;
+
+public class StructuralHashTest {
+
+  private final JsonFactory jf = JsonUtils.jsonFactory();
+
+  @Test
+  public void testEquivalentSpellings() {
+    final String[][] groups = {
+      {"1", "1.0", "1e0", "10e-1", "0.1e1", "1.000"},
+      {"0", "-0", "0.0", "-0.0", "0e5"},
+      {"100", "1e2", "1E+2", "100.00"},
+      {"1e400", "1E400", "10e399", "1.0e+400"},
+      {"-1.5e-400", "-15e-401"},
+      {"100000000000000000000", "1e20", "1.0E20"},
+      {"0.1", "1e-1", "0.10"},
+      {"{\"a\":1,\"b\":[true,null,\"x\"]}", "{\"b\":[true,null,\"x\"],\"a\":1.0}", " { \"b\" : [ true , null , \"x\" ] , \"a\" : 1e0 } "},
+    };
+    for (final String[] group : groups) {
+      final long expected = StructuralHash.of(jf.deserialize(group[0]));
+      for (final String json : group) {
+        assertThat(json, readHash(json), is(expected));
+        assertThat(json, StructuralHash.of(jf.deserialize(json)), is(expected));
+      }
+    }
+  }
+
+  @Test
+  public void testDistinctValues() {
+    final String[] values = {
+      "1", "-1", "1.0000000000000001", "0.1", "0.30000000000000004", "1e400", "1e-400",
+      "9223372036854775807", "9223372036854775808", "\"1\"", "true", "false", "null",
+      "[]", "{}", "[1,2]", "[2,1]", "[[1],2]", "[1,[2]]", "{\"a\":1}", "{\"a\":\"1\"}", "{\"b\":1}",
+      "{\"a\":{\"b\":1}}", "{\"a\":{},\"b\":1}", "[\"\"]", "[null]"
+    };
+    for (int i = 0; i < values.length; i++) {
+      assertThat(values[i], readHash(values[i]), is(StructuralHash.of(jf.deserialize(values[i]))));
+      for (int j = i + 1; j < values.length; j++) {
+        assertThat(values[i] + " " + values[j], readHash(values[i]), not(readHash(values[j])));
+      }
+    }
+  }
+
+  private long readHash(final String json) {
+    return new GsonReader(jf, new StringReader(json)).readHash();
+  }
+}